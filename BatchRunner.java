@@ -0,0 +1,233 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless runner which plays many games of 2048 with an automated
+// Strategy and prints aggregate statistics. Game i is played with seed
+// first-seed+i, both for the game and for the strategy, so every game
+// is reproducible on its own (e.g. by PlayText2048 with that seed).
+// Games are spread over a pool of threads; each thread folds its games
+// into its own running Stats so no per-game results are kept. Given a
+// replay file, every game is also appended to it as a Replay.
+public class BatchRunner {
+
+  // usage: java BatchRunner games strategy rows cols bricks {sparse|dense|bit|byte} [first-seed] [threads] [ai-depth] [replay-file]
+  //   games: how many games to play [int]
+  //   strategy: how moves are chosen ["random", "corner", "greedy" or "ai"]
+  //   rows/cols: the size of the board [int]
+  //   bricks: the number of immovable bricks to add to the board, 0 for none [int]
+  //   {sparse|dense|bit|byte}: the kind of board to use
+  //   first-seed: seed of the first game; game i uses first-seed+i [int]
+  //   threads: how many games to play at once, default one per core [int]
+  //   ai-depth: search depth of the "ai" strategy, default 2 [int]
+  //   replay-file: append a replay of every game to this file [path]
+  public static void main(String args[]) throws Exception {
+    if(args.length < 6){
+      System.out.println("usage: java BatchRunner games strategy rows cols bricks {sparse|dense|bit|byte} [first-seed] [threads] [ai-depth] [replay-file]");
+      System.out.println("  games: how many games to play [int]");
+      System.out.println("  strategy: how moves are chosen ['random', 'corner', 'greedy' or 'ai']");
+      System.out.println("  rows/cols: the size of the board [int]");
+      System.out.println("  bricks: the number of immovable bricks to add to the board, 0 for none [int]");
+      System.out.println("  {sparse|dense|bit|byte}: the kind of board to use");
+      System.out.println("  first-seed: seed of the first game; game i uses first-seed+i [int]");
+      System.out.println("  threads: how many games to play at once, default one per core [int]");
+      System.out.println("  ai-depth: search depth of the 'ai' strategy, default 2 [int]");
+      System.out.println("  replay-file: append a replay of every game to this file [path]");
+      return;
+    }
+    int games = Integer.parseInt(args[0]);
+    String strategy = args[1];
+    int rows = Integer.parseInt(args[2]);
+    int cols = Integer.parseInt(args[3]);
+    int bricks = Integer.parseInt(args[4]);
+    String boardStyle = args[5];
+    int firstSeed = args.length >= 7 ? Integer.parseInt(args[6]) : 13579;
+    int threads = args.length >= 8 ? Integer.parseInt(args[7])
+      : Runtime.getRuntime().availableProcessors();
+    int aiDepth = args.length >= 9 ? Integer.parseInt(args[8]) : 2;
+
+    BatchRunner runner = new BatchRunner(strategy, rows, cols, bricks, boardStyle, aiDepth);
+    if(args.length >= 10){
+      runner.replays = new ReplayWriter(new FileOutputStream(args[9], true));
+    }
+    long start = System.nanoTime();
+    Stats stats = runner.run(games, firstSeed, threads);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    if(runner.replays != null){
+      runner.replays.close();
+    }
+
+    System.out.printf("%d games of %s on %dx%d %s boards with %d bricks, seeds %d..%d\n",
+                      games, strategy, rows, cols, boardStyle, bricks,
+                      firstSeed, firstSeed+games-1);
+    System.out.printf("%d threads, %.2f s, %.1f games/sec, %.0f moves/sec\n",
+                      threads, seconds, games/seconds, stats.moves/seconds);
+    System.out.print(stats);
+  }
+
+  private final String strategy;
+  private final int rows;
+  private final int cols;
+  private final int bricks;
+  private final String boardStyle;
+  private final int aiDepth;
+  ReplayWriter replays;         // where to append each game, or null
+
+  public BatchRunner(String strategy, int rows, int cols, int bricks,
+                     String boardStyle, int aiDepth){
+    this.strategy = strategy;
+    this.rows = rows;
+    this.cols = cols;
+    this.bricks = bricks;
+    this.boardStyle = boardStyle;
+    this.aiDepth = aiDepth;
+    Strategy.forName(strategy, 0, aiDepth); // fail early on a bad name
+    Game2048.checkBoardStyle(rows, cols, boardStyle);
+  }
+
+  // Play games with seeds firstSeed .. firstSeed+games-1 on the given
+  // number of threads and return their combined statistics
+  public Stats run(int games, final int firstSeed, int threads) throws Exception {
+    final AtomicInteger next = new AtomicInteger(0);
+    final int total = games;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try{
+      List<Future<Stats>> parts = new ArrayList<Future<Stats>>();
+      for(int t=0; t<threads; t++){
+        parts.add(pool.submit(() -> {
+              Stats part = new Stats();
+              for(int i=next.getAndIncrement(); i<total; i=next.getAndIncrement()){
+                playGame(firstSeed+i, part);
+              }
+              return part;
+            }));
+      }
+      Stats stats = new Stats();
+      for(Future<Stats> part : parts){
+        stats.add(part.get());
+      }
+      return stats;
+    }
+    finally{
+      pool.shutdown();
+    }
+  }
+
+  // Play one game to the end and fold it into stats
+  public void playGame(int seed, Stats stats) throws IOException {
+    Replay replay = this.replays == null ? null
+      : new Replay(this.rows, this.cols, this.bricks, this.boardStyle, seed);
+    Game2048 game = new Game2048(this.rows, this.cols, seed, this.boardStyle);
+    game.addStartingTiles(this.bricks);
+    Strategy player = Strategy.forName(this.strategy, seed, this.aiDepth);
+    long moves = 0;
+    while(!game.isGameOver()){
+      Direction d = player.chooseMove(game);
+      if(d == null){
+        break;                  // free spaces left but nothing can move
+      }
+      game.move(d);
+      if(replay != null){
+        replay.record(d);
+      }
+      moves++;
+    }
+    stats.addGame(game.getScore(), maxTile(game), moves);
+    if(replay != null){
+      this.replays.write(replay);
+    }
+  }
+
+  // Largest tile score on the game's board
+  static int maxTile(Game2048 game){
+    int max = 0;
+    for(int i=0; i<game.getRows(); i++){
+      for(int j=0; j<game.getCols(); j++){
+        Tile t = game.tileAt(i,j);
+        if(t != null){
+          max = Math.max(max, t.getScore());
+        }
+      }
+    }
+    return max;
+  }
+
+  // Running totals over any number of games. Scores are bucketed by
+  // powers of two and max tiles by their exponent.
+  public static class Stats {
+    long games;
+    long moves;
+    long minMoves = Long.MAX_VALUE;
+    long maxMoves;
+    long scoreSum;
+    double scoreSquares;
+    long minScore = Long.MAX_VALUE;
+    long maxScore;
+    long[] scoreBuckets = new long[33];   // [0] for 0, [k] for 2^(k-1)..2^k-1
+    long[] maxTiles = new long[32];       // [k] for a max tile of 2^k
+
+    void addGame(long score, int maxTile, long gameMoves){
+      this.games++;
+      this.moves += gameMoves;
+      this.minMoves = Math.min(this.minMoves, gameMoves);
+      this.maxMoves = Math.max(this.maxMoves, gameMoves);
+      this.scoreSum += score;
+      this.scoreSquares += (double) score * score;
+      this.minScore = Math.min(this.minScore, score);
+      this.maxScore = Math.max(this.maxScore, score);
+      this.scoreBuckets[64 - Long.numberOfLeadingZeros(score)]++;
+      this.maxTiles[31 - Integer.numberOfLeadingZeros(Math.max(maxTile,1))]++;
+    }
+
+    void add(Stats other){
+      this.games += other.games;
+      this.moves += other.moves;
+      this.minMoves = Math.min(this.minMoves, other.minMoves);
+      this.maxMoves = Math.max(this.maxMoves, other.maxMoves);
+      this.scoreSum += other.scoreSum;
+      this.scoreSquares += other.scoreSquares;
+      this.minScore = Math.min(this.minScore, other.minScore);
+      this.maxScore = Math.max(this.maxScore, other.maxScore);
+      for(int k=0; k<this.scoreBuckets.length; k++){
+        this.scoreBuckets[k] += other.scoreBuckets[k];
+      }
+      for(int k=0; k<this.maxTiles.length; k++){
+        this.maxTiles[k] += other.maxTiles[k];
+      }
+    }
+
+    public String toString(){
+      StringBuilder sb = new StringBuilder();
+      if(this.games == 0){
+        return "no games played\n";
+      }
+      double mean = (double) this.scoreSum / this.games;
+      double var = Math.max(0.0, this.scoreSquares / this.games - mean*mean);
+      sb.append(String.format("score: mean %.1f, stddev %.1f, min %d, max %d\n",
+                              mean, Math.sqrt(var), this.minScore, this.maxScore));
+      sb.append(String.format("moves/game: mean %.1f, min %d, max %d\n",
+                              (double) this.moves / this.games, this.minMoves, this.maxMoves));
+      sb.append("score distribution:\n");
+      for(int k=0; k<this.scoreBuckets.length; k++){
+        if(this.scoreBuckets[k] == 0){ continue; }
+        long low = k == 0 ? 0 : 1L << (k-1);
+        long high = k == 0 ? 0 : (1L << k) - 1;
+        sb.append(String.format("  %10d..%-10d %10d  %5.1f%%\n", low, high,
+                                this.scoreBuckets[k], 100.0*this.scoreBuckets[k]/this.games));
+      }
+      sb.append("max tile:\n");
+      for(int k=0; k<this.maxTiles.length; k++){
+        if(this.maxTiles[k] == 0){ continue; }
+        sb.append(String.format("  %10d %10d  %5.1f%%\n", k == 0 ? 0 : 1L << k,
+                                this.maxTiles[k], 100.0*this.maxTiles[k]/this.games));
+      }
+      return sb.toString();
+    }
+  }
+
+}
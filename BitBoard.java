@@ -0,0 +1,287 @@
+// A 4x4 Board packed into a single 64-bit long. Each cell is a 4-bit
+// code: 0 for an empty space, 1..14 for a TwoNTile of value 2^code,
+// and 15 for a Brick. Cell (i,j) lives in bits 16*i+4*j .. 16*i+4*j+3
+// so row i is the 16-bit value (bits >>> 16*i) & 0xFFFF.
+//
+// Shifts are done with the precomputed ShiftTable covering all 65536
+// possible rows; shifting up/down transposes the board and uses the
+// same table. Copying the board is a single primitive assignment.
+//
+// Limitations: the largest representable tile is 16384 (code 14). Two
+// 16384 tiles do not merge since their result would not fit in a cell.
+public class BitBoard extends Board {
+
+  public static final int SIZE = 4;
+
+  // Rows are shifted with the ShiftTable shared by every board with
+  // lines of width 4; right/down shifts look up the reversed row.
+  private static final ShiftTable TABLE = ShiftTable.forWidth(SIZE);
+
+  private long bits;            // the packed cells
+  private int free;             // the number of free spaces
+  private boolean shifted;      // tracks if the last move shifted tiles or not
+
+  // Build an empty 4x4 board
+  public BitBoard(){
+    this(0L);
+  }
+
+  // Build an empty board; only 4x4 boards are supported
+  public BitBoard(int rows, int cols){
+    this(0L);
+    if(rows != SIZE || cols != SIZE){
+      String msg = String.format("BitBoard must be %dx%d, not %dx%d",
+                                 SIZE,SIZE,rows,cols);
+      throw new RuntimeException(msg);
+    }
+  }
+
+  // Build a board that copies the 4x4 array of tiles provided
+  public BitBoard(Tile t[][]){
+    this(0L);
+    if(t.length != SIZE || t[0].length != SIZE){
+      String msg = String.format("BitBoard must be %dx%d, not %dx%d",
+                                 SIZE,SIZE,t.length,t[0].length);
+      throw new RuntimeException(msg);
+    }
+    for(int i=0; i<SIZE; i++){
+      for(int j=0; j<SIZE; j++){
+        if(t[i][j] != null){
+          this.bits |= ((long) encode(t[i][j])) << shiftOf(i,j);
+          this.free--;
+        }
+      }
+    }
+  }
+
+  private BitBoard(long bits){
+    this.bits = bits;
+    this.free = countFree(bits);
+    this.shifted = false;
+  }
+
+  // Create a distinct copy of the board including its internal tile
+  // positions and any other state
+  public Board copy(){
+    BitBoard newBoard = new BitBoard(this.bits);
+    newBoard.shifted = this.shifted;
+    return newBoard;
+  }
+
+  // Return the packed cells of the board
+  public long getBits(){
+    return this.bits;
+  }
+
+  // Return the number of rows in the Board
+  public int getRows(){
+    return SIZE;
+  }
+
+  // Return the number of columns in the Board
+  public int getCols(){
+    return SIZE;
+  }
+
+  // Return how many tiles are present in the board (non-empty spaces)
+  public int getTileCount(){
+    return SIZE*SIZE - this.free;
+  }
+
+  // Return how many free spaces are in the board
+  public int getFreeSpaceCount(){
+    return this.free;
+  }
+
+  // Get the tile at a particular location; null for a free space
+  public Tile tileAt(int i, int j){
+    if(i<0 || i>=SIZE || j<0 || j>=SIZE){
+      throw new RuntimeException("Out of bounds!");
+    }
+    return decode((int) ((this.bits >>> shiftOf(i,j)) & 0xF));
+  }
+
+  // true if the last shift operation moved any tile; false otherwise
+  public boolean lastShiftMovedTiles(){
+    return this.shifted;
+  }
+
+  // Return true if a shift left, right, up, or down would merge any
+  // tiles. Any merge scores, so a row merges if its left shift scores;
+  // columns are the rows of the transposed board.
+  public boolean mergePossible(){
+    long t = transpose(this.bits);
+    for(int i=0; i<SIZE; i++){
+      if(ShiftTable.scoreOf(TABLE.lookup(row(this.bits,i))) != 0
+         || ShiftTable.scoreOf(TABLE.lookup(row(t,i))) != 0){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // What shifting in each direction would score and whether it would
+  // move anything: two table lookups per row of the board and of its
+  // transpose
+  public MovePreview previewMoves(){
+    int[] scores = new int[4];
+    boolean[] moves = new boolean[4];
+    previewRows(this.bits, Direction.LEFT, Direction.RIGHT, scores, moves);
+    previewRows(transpose(this.bits), Direction.UP, Direction.DOWN, scores, moves);
+    return new MovePreview(scores, moves);
+  }
+
+  // The whole board is one long
+  public long estimatedBytes(){
+    return 32;
+  }
+
+  // Fill in the scores and moves of shifting the rows of b toward
+  // their start and their end
+  private static void previewRows(long b, Direction toStart, Direction toEnd,
+                                  int[] scores, boolean[] moves){
+    for(int i=0; i<SIZE; i++){
+      int r = row(b,i);
+      long start = TABLE.lookup(r);
+      long end = TABLE.lookup(reverseRow(r));
+      scores[toStart.ordinal()] += ShiftTable.scoreOf(start);
+      moves[toStart.ordinal()] |= ShiftTable.movedOf(start);
+      scores[toEnd.ordinal()] += ShiftTable.scoreOf(end);
+      moves[toEnd.ordinal()] |= ShiftTable.movedOf(end);
+    }
+  }
+
+  // Add a the given tile to the board at the "freeL"th free space.
+  public void addTileAtFreeSpace(int freeL, Tile tile){
+    if(this.free == 0){
+      throw new RuntimeException("There are no free spaces!");
+    }
+    if(freeL < 0 || freeL >= this.free){
+      throw new RuntimeException("Spot "+freeL+" isn't free!");
+    }
+    long code = encode(tile);
+    int seen = 0;
+    for(int shift=0; shift<64; shift+=4){
+      if(((this.bits >>> shift) & 0xF) == 0){
+        if(seen == freeL){
+          this.bits |= code << shift;
+          this.free--;
+          return;
+        }
+        seen++;
+      }
+    }
+  }
+
+  // Pretty-printed version of the board.
+  public String toString(){
+    StringBuilder stBu = new StringBuilder();
+    for(int i=0; i<SIZE; i++){
+      for(int j=0; j<SIZE; j++){
+        Tile t = tileAt(i,j);
+        if(t == null){
+          stBu.append(String.format("%4s ", "-"));
+        }
+        else{
+          stBu.append(String.format("%4s ", String.valueOf(t.getScore())));
+        }
+      }
+      stBu.append("\n");
+    }
+    return stBu.toString();
+  }
+
+  public String debugString(){
+    return String.format("%016x", this.bits);
+  }
+
+  // Shift the tiles of Board in various directions.
+  public int shiftLeft(){
+    return shiftRows(this.bits, false, false);
+  }
+
+  public int shiftRight(){
+    return shiftRows(this.bits, true, false);
+  }
+
+  public int shiftUp(){
+    return shiftRows(transpose(this.bits), false, true);
+  }
+
+  public int shiftDown(){
+    return shiftRows(transpose(this.bits), true, true);
+  }
+
+  // Shift every row of board b, which is the transposed board when
+  // shifting vertically, and store the result.
+  private int shiftRows(long b, boolean reversed, boolean transposed){
+    long result = 0L;
+    int score = 0;
+    for(int i=0; i<SIZE; i++){
+      int r = row(b,i);
+      long entry = TABLE.lookup(reversed ? reverseRow(r) : r);
+      int shiftedRow = ShiftTable.rowOf(entry);
+      if(reversed){
+        shiftedRow = reverseRow(shiftedRow);
+      }
+      result |= ((long) shiftedRow) << (16*i);
+      score += ShiftTable.scoreOf(entry);
+    }
+    if(transposed){
+      result = transpose(result);
+    }
+    this.shifted = result != this.bits;
+    this.bits = result;
+    this.free = countFree(result);
+    return score;
+  }
+
+  // Return the 4-bit code for the given tile
+  static int encode(Tile tile){
+    int code = ShiftTable.encode(tile);
+    if(code <= 0){
+      String msg = String.format("BitBoard can't hold tile |%s|", tile);
+      throw new RuntimeException(msg);
+    }
+    return code;
+  }
+
+  // Return the tile for a 4-bit code; null for an empty space
+  static Tile decode(int code){
+    return ShiftTable.decode(code);
+  }
+
+  private static int shiftOf(int i, int j){
+    return 16*i + 4*j;
+  }
+
+  private static int row(long b, int i){
+    return (int) ((b >>> (16*i)) & 0xFFFF);
+  }
+
+  private static int reverseRow(int row){
+    return ((row & 0xF) << 12) | ((row & 0xF0) << 4)
+      | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+  }
+
+  // Swap cell (i,j) with cell (j,i)
+  private static long transpose(long x){
+    long a1 = x & 0xF0F00F0FF0F00F0FL;
+    long a2 = x & 0x0000F0F00000F0F0L;
+    long a3 = x & 0x0F0F00000F0F0000L;
+    long a = a1 | (a2 << 12) | (a3 >>> 12);
+    long b1 = a & 0xFF00FF0000FF00FFL;
+    long b2 = a & 0x00FF00FF00000000L;
+    long b3 = a & 0x00000000FF00FF00L;
+    return b1 | (b2 >>> 24) | (b3 << 24);
+  }
+
+  // Count the empty cells: fold each nibble onto its low bit and
+  // count the nibbles left without one
+  private static int countFree(long b){
+    long x = b | (b >>> 1);
+    x |= x >>> 2;
+    return SIZE*SIZE - Long.bitCount(x & 0x1111111111111111L);
+  }
+
+}
@@ -19,6 +19,28 @@ public abstract class Board{
   // Get the tile at a particular location
   public abstract Tile tileAt(int i, int j);
 
+  // Fill row with the tiles of row i, null for free spaces. Snapshots
+  // read whole rows this way; boards override it with a walk faster
+  // than one tileAt() per cell.
+  public void readRow(int i, Tile[] row){
+    for(int j=0; j<row.length; j++){
+      row[j] = tileAt(i,j);
+    }
+  }
+
+  // Start recording which rows of the board change, forgetting any
+  // recorded so far, so snapshots can reread only those. Boards which
+  // don't record rows ignore it.
+  public void clearChangedRows(){
+  }
+
+  // The rows written since clearChangedRows(), row i as bit (i & 63)
+  // of word i/64, or null if the board does not record them or was
+  // never asked to. Copies start out not recording.
+  public long[] changedRows(){
+    return null;
+  }
+
   // true if the last shift operation moved any tile; false otherwise
   public abstract boolean lastShiftMovedTiles();
 
@@ -28,6 +50,48 @@ public abstract class Board{
   // game is over.
   public abstract boolean mergePossible();
 
+  // true if no shift can change the board: it is full and no tiles
+  // could merge. Boards which keep count of their mergeable neighbours
+  // override this to answer without a scan.
+  public boolean noMovesLeft(){
+    return getFreeSpaceCount() == 0 && !mergePossible();
+  }
+
+  // 64-bit Zobrist hash of the tiles on the board (see Zobrist): equal
+  // positions hash the same on any kind of board. This computes it from
+  // scratch; boards override it to keep it up to date as they change.
+  public long zobristHash(){
+    return Zobrist.hashOf(this);
+  }
+
+  // Rough heap footprint of the board in bytes, for budgeting memory
+  // across many boards. Shared tiles are not counted. This guesses at
+  // a Tile[][]; boards override it with their own layout.
+  public long estimatedBytes(){
+    return arrayBytes(getRows(), 4) + getRows() * arrayBytes(getCols(), 4);
+  }
+
+  // Heap bytes of an array of length elements of the given size,
+  // assuming a 16 byte header and 8 byte alignment as on a 64-bit JVM
+  // with compressed references
+  static long arrayBytes(long length, int elementBytes){
+    return (16 + length * elementBytes + 7) & ~7L;
+  }
+
+  // What shifting in each direction would score and whether it would
+  // move any tile, leaving this board as it is. This shifts a copy
+  // per direction; boards override it with a single pass.
+  public MovePreview previewMoves(){
+    int[] scores = new int[4];
+    boolean[] moves = new boolean[4];
+    for(Direction d : Direction.values()){
+      Board child = copy();
+      scores[d.ordinal()] = d.shift(child);
+      moves[d.ordinal()] = child.lastShiftMovedTiles();
+    }
+    return new MovePreview(scores, moves);
+  }
+
   // Add a the given tile to the board at the "freeI"th free space.
   public abstract void addTileAtFreeSpace(int freeI, Tile tile);
 
@@ -0,0 +1,197 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Microbenchmarks for the Board implementations. Every combination of
+// board style, size, fill density and bricks/no bricks is timed on
+// each operation and reported as ops/sec, ns/op, bytes allocated per
+// op and allocation rate. Allocation is read from the thread's
+// allocation counter, giving the figures JMH's GC profiler reports as
+// gc.alloc.rate.norm and gc.alloc.rate.
+//
+// Fixtures come from fixed seeds so runs are comparable: for seed s a
+// Game2048 with seed s supplies every tile value through
+// getRandomTile() and a Random(s) picks which cells are filled. Each
+// style gets the same arrangement of tiles.
+//
+// Operations which change the board (shifts, addTileAtFreeSpace) run
+// on copies of the fixture made before the clock starts, so every
+// timed call sees the fixture itself rather than an already shifted
+// board.
+//
+// usage: java BoardBenchmark [ops] [sizes] [densities] [bricks] [styles] [seconds] [seed]
+//   each argument is a comma separated list, or "all"
+//   ops: shiftLeft,shiftRight,shiftUp,shiftDown,mergePossible,noMovesLeft,
+//        previewMoves,zobristHash,addTileAtFreeSpace,tileAt,copy,toString
+//   sizes: side of a square board, default 4,16,64,256,1000
+//   densities: fraction of cells holding tiles, default 0.01,0.25,0.90
+//   bricks: "0" for none and/or "1" for bricks on 2% of cells, default 0,1
+//   styles: sparse,dense,byte (and/or bit for 4x4), default dense,sparse,byte
+//   seconds: measured time per case, default 1.0
+//   seed: fixture seed, default 13579
+public class BoardBenchmark {
+
+  static final String[] ALL_OPS = {
+    "shiftLeft", "shiftRight", "shiftUp", "shiftDown", "mergePossible",
+    "noMovesLeft", "previewMoves", "zobristHash", "addTileAtFreeSpace", "tileAt", "copy", "toString"
+  };
+  static final String[] DEFAULT_SIZES = {"4", "16", "64", "256", "1000"};
+  static final String[] DEFAULT_DENSITIES = {"0.01", "0.25", "0.90"};
+  static final String[] DEFAULT_BRICKS = {"0", "1"};
+  static final String[] DEFAULT_STYLES = {"dense", "sparse", "byte"};
+  static final double BRICK_DENSITY = 0.02;
+
+  // Most cells held by the copies made for one measured batch
+  static final long MAX_BATCH_CELLS = 1L << 24;
+
+  static final com.sun.management.ThreadMXBean THREADS =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public static void main(String args[]){
+    String[] ops = list(args, 0, ALL_OPS);
+    String[] sizes = list(args, 1, DEFAULT_SIZES);
+    String[] densities = list(args, 2, DEFAULT_DENSITIES);
+    String[] bricks = list(args, 3, DEFAULT_BRICKS);
+    String[] styles = list(args, 4, DEFAULT_STYLES);
+    double seconds = args.length > 5 ? Double.parseDouble(args[5]) : 1.0;
+    int seed = args.length > 6 ? Integer.parseInt(args[6]) : 13579;
+
+    System.out.printf("%-7s %6s %7s %6s %-19s %14s %14s %12s %10s\n",
+                      "style", "size", "density", "bricks", "op",
+                      "ops/sec", "ns/op", "B/op", "MB/sec");
+    for(String size : sizes){
+      int n = Integer.parseInt(size);
+      for(String density : densities){
+        for(String brick : bricks){
+          Tile[][] tiles = fixture(n, n, Double.parseDouble(density),
+                                   brick.equals("1"), seed);
+          for(String style : styles){
+            if(style.equals("bit") && n != BitBoard.SIZE){
+              continue;
+            }
+            Board board = Game2048.makeBoard(tiles, style);
+            for(String op : ops){
+              // a full board has no free space to add a tile at
+              if(op.equals("addTileAtFreeSpace") && board.getFreeSpaceCount() == 0){
+                continue;
+              }
+              double[] result = measure(board, op, seconds, seed);
+              System.out.printf("%-7s %6d %7s %6s %-19s %14.1f %14.1f %12.1f %10.1f\n",
+                                style, n, density, brick, op,
+                                1e9/result[0], result[0], result[1],
+                                result[1] / result[0] * 1e9 / (1 << 20));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // Build the tiles of a rows x cols fixture with the given fraction
+  // of cells filled, plus bricks on BRICK_DENSITY of the remaining
+  // cells if asked for
+  static Tile[][] fixture(int rows, int cols, double density, boolean bricks, int seed){
+    Game2048 game = new Game2048(rows, cols, seed);
+    Random cells = new Random(seed);
+    Tile[][] tiles = new Tile[rows][cols];
+    for(int i=0; i<rows; i++){
+      for(int j=0; j<cols; j++){
+        double pick = cells.nextDouble();
+        if(pick < density){
+          tiles[i][j] = game.getRandomTile();
+        }
+        else if(bricks && pick < density + BRICK_DENSITY){
+          tiles[i][j] = new Brick();
+        }
+      }
+    }
+    return tiles;
+  }
+
+  // Time op on the board, returning {ns/op, bytes/op}
+  static double[] measure(Board board, String op, double seconds, int seed){
+    long cells = (long) board.getRows() * board.getCols();
+    int batch = (int) Math.max(1, Math.min(1024, MAX_BATCH_CELLS / cells));
+    Random random = new Random(seed);
+
+    // warm up for a fifth of the measured time
+    long warmEnd = System.nanoTime() + (long) (seconds * 2e8);
+    while(System.nanoTime() < warmEnd){
+      runBatch(board, op, batch, random);
+    }
+
+    long nanos = 0;
+    long bytes = 0;
+    long count = 0;
+    long end = System.nanoTime() + (long) (seconds * 1e9);
+    while(System.nanoTime() < end){
+      long[] r = runBatch(board, op, batch, random);
+      nanos += r[0];
+      bytes += r[1];
+      count += r[2];
+    }
+    return new double[]{ (double) nanos / count, (double) bytes / count };
+  }
+
+  static volatile Object sink;    // keeps results from being optimised away
+
+  // Run op batch times, returning {nanos, bytes allocated, ops} for the
+  // timed part only
+  static long[] runBatch(Board board, String op, int batch, Random random){
+    List<Board> copies = new ArrayList<Board>();
+    boolean mutates = op.startsWith("shift") || op.equals("addTileAtFreeSpace");
+    if(mutates){
+      for(int k=0; k<batch; k++){
+        copies.add(board.copy());
+      }
+    }
+    int[] rows = new int[batch];
+    int[] cols = new int[batch];
+    int[] frees = new int[batch];
+    for(int k=0; k<batch; k++){
+      rows[k] = random.nextInt(board.getRows());
+      cols[k] = random.nextInt(board.getCols());
+      frees[k] = board.getFreeSpaceCount() == 0 ? 0 : random.nextInt(board.getFreeSpaceCount());
+    }
+    Tile spawn = TwoNTile.valueOf(2);
+    if(op.equals("addTileAtFreeSpace") && board.getFreeSpaceCount() == 0){
+      return new long[]{0, 0, 0};
+    }
+
+    long thread = Thread.currentThread().getId();
+    long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    long acc = 0;
+    for(int k=0; k<batch; k++){
+      switch(op){
+        case "shiftLeft":  acc += copies.get(k).shiftLeft(); break;
+        case "shiftRight": acc += copies.get(k).shiftRight(); break;
+        case "shiftUp":    acc += copies.get(k).shiftUp(); break;
+        case "shiftDown":  acc += copies.get(k).shiftDown(); break;
+        case "mergePossible": acc += board.mergePossible() ? 1 : 0; break;
+        case "noMovesLeft": acc += board.noMovesLeft() ? 1 : 0; break;
+        case "previewMoves": acc += board.previewMoves().score(Direction.LEFT); break;
+        case "zobristHash": acc += board.zobristHash(); break;
+        case "addTileAtFreeSpace": copies.get(k).addTileAtFreeSpace(frees[k], spawn); break;
+        case "tileAt": acc += board.tileAt(rows[k], cols[k]) == null ? 0 : 1; break;
+        case "copy": sink = board.copy(); break;
+        case "toString": acc += board.toString().length(); break;
+        default: throw new RuntimeException(String.format("Unknown operation '%s'",op));
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+    sink = acc;
+    return new long[]{elapsed, bytes, batch};
+  }
+
+  // The comma separated list in args[i], or the defaults
+  static String[] list(String args[], int i, String[] defaults){
+    if(args.length <= i || args[i].equals("all")){
+      return defaults;
+    }
+    return args[i].split(",");
+  }
+
+}
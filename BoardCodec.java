@@ -0,0 +1,132 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Compact binary form of a Board, for checkpoints much smaller and
+// faster than toString() dumps. Cells are coded as in ByteBoard: 0 for
+// an empty space, k for a TwoNTile of value 2^k, BRICK for a Brick.
+// Any board style can be written and read back as any other.
+//
+// Layout, integers as varints:
+//   MAGIC byte, layout byte, rows, cols, then by layout
+//   RUNS:   row-major runs of equal cells, each one varint holding
+//           (run length - 1) << 7 | code; a lone tile is one byte
+//   TILES:  tile count, then for each tile in row-major order the
+//           number of empty cells since the one before, and its code
+// TILES is used when at most a quarter of the board holds tiles, and
+// reading it back places the tiles one by one without building a
+// whole Tile[][].
+public class BoardCodec {
+
+  static final int MAGIC = 0xB3;
+  static final int RUNS = 0;
+  static final int TILES = 1;
+
+  private static final int MAX_RUN = 1 << 24;  // keeps a run varint in an int
+
+  // Write board to out
+  public static void writeBoard(DataOutput out, Board board) throws IOException {
+    int rows = board.getRows();
+    int cols = board.getCols();
+    boolean fewTiles = (long) board.getTileCount() * 4 <= (long) rows * cols;
+    out.writeByte(MAGIC);
+    out.writeByte(fewTiles ? TILES : RUNS);
+    ReplayWriter.writeVarint(out, rows);
+    ReplayWriter.writeVarint(out, cols);
+    if(fewTiles){
+      ReplayWriter.writeVarint(out, board.getTileCount());
+    }
+    Tile[] row = new Tile[cols];
+    int runCode = -1;
+    int runLength = 0;
+    int gap = 0;
+    for(int i=0; i<rows; i++){
+      board.readRow(i, row);
+      for(int j=0; j<cols; j++){
+        int code = row[j] == null ? ByteBoard.EMPTY : ByteBoard.encode(row[j]);
+        if(fewTiles){
+          if(code == ByteBoard.EMPTY){
+            gap++;
+            continue;
+          }
+          ReplayWriter.writeVarint(out, gap);
+          out.writeByte(code);
+          gap = 0;
+        }
+        else if(code == runCode && runLength < MAX_RUN){
+          runLength++;
+        }
+        else{
+          writeRun(out, runCode, runLength);
+          runCode = code;
+          runLength = 1;
+        }
+      }
+    }
+    if(!fewTiles){
+      writeRun(out, runCode, runLength);
+    }
+  }
+
+  private static void writeRun(DataOutput out, int code, int length) throws IOException {
+    if(length > 0){
+      ReplayWriter.writeVarint(out, (length - 1) << 7 | code);
+    }
+  }
+
+  // Read a board written by writeBoard() into a new board of the given
+  // style
+  public static Board readBoard(DataInput in, String boardStyle) throws IOException {
+    int magic = in.readUnsignedByte();
+    if(magic != MAGIC){
+      throw new RuntimeException(String.format("Not a board record: byte 0x%02x", magic));
+    }
+    int layout = in.readUnsignedByte();
+    int rows = ReplayReader.readVarint(in);
+    int cols = ReplayReader.readVarint(in);
+    long cells = (long) rows * cols;
+    if(layout == TILES){
+      Board board = Game2048.makeBoard(rows, cols, boardStyle);
+      int count = ReplayReader.readVarint(in);
+      long cell = -1;
+      for(int placed=0; placed<count; placed++){
+        cell += ReplayReader.readVarint(in) + 1;
+        if(cell >= cells){
+          throw new RuntimeException("Board record has a tile past its last cell");
+        }
+        Tile tile = decode(in.readUnsignedByte());
+        if(tile == null){
+          throw new RuntimeException("Board record lists an empty cell as a tile");
+        }
+        // the cells before this one hold exactly the tiles placed so far
+        board.addTileAtFreeSpace((int) (cell - placed), tile);
+      }
+      return board;
+    }
+    if(layout != RUNS){
+      throw new RuntimeException("Unknown board layout "+layout);
+    }
+    Tile[][] tiles = new Tile[rows][cols];
+    long cell = 0;
+    while(cell < cells){
+      int run = ReplayReader.readVarint(in);
+      Tile tile = decode(run & 0x7F);
+      long end = cell + (run >>> 7) + 1;
+      if(end > cells){
+        throw new RuntimeException("Board record has a run past its last cell");
+      }
+      for(; cell<end; cell++){
+        tiles[(int) (cell / cols)][(int) (cell % cols)] = tile;
+      }
+    }
+    return Game2048.makeBoard(tiles, boardStyle);
+  }
+
+  private static Tile decode(int code){
+    if(code != ByteBoard.BRICK && code > ByteBoard.MAX_EXPONENT){
+      throw new RuntimeException("Unknown cell code "+code);
+    }
+    return ByteBoard.decode((byte) code);
+  }
+
+}
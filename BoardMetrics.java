@@ -0,0 +1,114 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts, latencies and tiles touched of Board operations, filled in by
+// InstrumentedBoard. Recording is lock-free: every figure is a
+// LongAdder, so many threads and many boards can share one
+// BoardMetrics and contend on nothing but striped counters.
+//
+// Latencies go into power-of-two buckets (bucket k holds calls taking
+// 2^(k-1) to 2^k - 1 ns), which is coarse but fixed-size, cheap to
+// update and enough to tell a 50 ns call from a 5 ms one. Percentiles
+// in reports are the upper bound of the bucket they fall in.
+public class BoardMetrics {
+
+  // The operations measured
+  public enum Op {
+    SHIFT_LEFT, SHIFT_RIGHT, SHIFT_UP, SHIFT_DOWN, ADD_TILE,
+    MERGE_POSSIBLE, NO_MOVES_LEFT, PREVIEW_MOVES, TILE_AT, COPY
+  }
+
+  private static final int BUCKETS = 64;
+
+  private static class OpStats {
+    final LongAdder calls = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    final LongAdder tiles = new LongAdder();
+    final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    OpStats(){
+      for(int k=0; k<BUCKETS; k++){
+        this.histogram[k] = new LongAdder();
+      }
+    }
+  }
+
+  private final OpStats[] ops = new OpStats[Op.values().length];
+
+  public BoardMetrics(){
+    for(int i=0; i<this.ops.length; i++){
+      this.ops[i] = new OpStats();
+    }
+  }
+
+  // Record one call of op which took nanos and touched the given number
+  // of tiles
+  public void record(Op op, long nanos, long tiles){
+    OpStats stats = this.ops[op.ordinal()];
+    stats.calls.increment();
+    stats.nanos.add(nanos);
+    stats.tiles.add(tiles);
+    stats.histogram[Math.min(BUCKETS-1, 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)))].increment();
+  }
+
+  // Calls of op recorded so far
+  public long calls(Op op){
+    return this.ops[op.ordinal()].calls.sum();
+  }
+
+  // Forget everything recorded. Calls being recorded meanwhile may be
+  // half kept.
+  public void reset(){
+    for(OpStats stats : this.ops){
+      stats.calls.reset();
+      stats.nanos.reset();
+      stats.tiles.reset();
+      for(LongAdder bucket : stats.histogram){
+        bucket.reset();
+      }
+    }
+  }
+
+  // A table of what has been recorded so far, one line per operation
+  // that was called. Figures are summed as the table is made, so calls
+  // recorded meanwhile may be counted in some columns and not others.
+  public String report(){
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-15s %12s %12s %10s %10s %10s %12s %12s\n", "op", "calls",
+                            "mean ns", "p50 ns", "p99 ns", "max ns", "total ms", "tiles/call"));
+    for(Op op : Op.values()){
+      OpStats stats = this.ops[op.ordinal()];
+      long calls = stats.calls.sum();
+      if(calls == 0){
+        continue;
+      }
+      long[] counts = new long[BUCKETS];
+      for(int k=0; k<BUCKETS; k++){
+        counts[k] = stats.histogram[k].sum();
+      }
+      long nanos = stats.nanos.sum();
+      sb.append(String.format("%-15s %12d %12.1f %10d %10d %10d %12.1f %12.1f\n",
+                              op.name().toLowerCase(), calls, (double) nanos / calls,
+                              percentile(counts, 0.50), percentile(counts, 0.99), percentile(counts, 1.0),
+                              nanos / 1e6, (double) stats.tiles.sum() / calls));
+    }
+    return sb.toString();
+  }
+
+  // Upper bound in ns of the bucket holding fraction p of the calls
+  private static long percentile(long[] counts, double p){
+    long total = 0;
+    for(long c : counts){
+      total += c;
+    }
+    long wanted = Math.max(1, (long) Math.ceil(p * total));
+    long seen = 0;
+    for(int k=0; k<BUCKETS; k++){
+      seen += counts[k];
+      if(seen >= wanted){
+        return k == 0 ? 0 : (1L << k) - 1;
+      }
+    }
+    return 0;
+  }
+
+}
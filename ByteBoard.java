@@ -0,0 +1,587 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Constructor;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// A dense Board for large grids which keeps one byte per cell in a
+// single flat row-major array instead of a Tile[][]. Each byte is a
+// code: 0 for an empty space, k for a TwoNTile of value 2^k, and BRICK
+// for a Brick. Tiles only exist at the boundary: tileAt() hands out
+// the shared TwoNTile for a code, and addTileAtFreeSpace() turns the
+// tile it is given back into one.
+//
+// A 4096x4096 board is a 16 MB array, and shifts walk it with
+// primitive compares instead of chasing references. Rows of at least
+// WIDE_ROW cells are shifted by one of two kernels:
+//
+//   - with -Dgame2048.vectorShift=true, a RowKernel built on the
+//     jdk.incubator.vector API which compacts and merges the row in
+//     SIMD lanes (see vector/ByteRowVectors.java). It is compiled and
+//     run apart from the rest, as the incubator module has to be
+//     added by hand:
+//
+//       javac -d out *.java
+//       javac --add-modules jdk.incubator.vector -cp out -d out vector/ByteRowVectors.java
+//       java --add-modules jdk.incubator.vector -Dgame2048.vectorShift=true -cp out ...
+//
+//   - otherwise, or when that class or module can't be loaded, a scalar
+//     loop which reads the row eight cells at a time as a long only to
+//     step over chunks with nothing to do; compaction and merging are
+//     done cell by cell.
+//
+// Limitations: only Bricks and TwoNTiles with power of two values can
+// be held, and the largest tile is 2^30. Two 2^30 tiles do not merge
+// since their value would not fit in an int.
+public class ByteBoard extends Board {
+
+  public static final byte EMPTY = 0;
+  public static final byte BRICK = 0x7F;
+  public static final int MAX_EXPONENT = 30;
+
+  private static final Tile BRICK_TILE = new Brick();
+
+  // Rows at least this wide are shifted by the vector kernel if there
+  // is one, and otherwise a chunk of eight cells at a time where the
+  // chunk can be stepped over whole
+  public static final int WIDE_ROW = 16;
+
+  // Shifts whole rows of codes for shiftRow(); one is made per board
+  interface RowKernel {
+    // Shift the len codes at cells[from] toward the first of them, or
+    // toward the last if reverse, writing the row that results into
+    // row[0..len) in the same order as cells, and return the score.
+    // cells is not changed.
+    int shiftRow(byte[] cells, int from, int len, boolean reverse, byte[] row);
+  }
+
+  // Makes the vector kernels, or null if they are off or unavailable
+  private static final Supplier<RowKernel> VECTOR_KERNELS = vectorKernels();
+
+  private static final VarHandle CHUNK =
+    MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+  private static final long BRICKS = ONES * BRICK;
+
+  private final int rows;
+  private final int cols;
+  private byte[] cells;          // cell (i,j) at i*cols + j
+  private FreeSpaceIndex freeIndex;
+  private int pairs;            // side-by-side tiles which merge with each other
+  private long hash;            // Zobrist hash, kept by every write
+  private boolean shifted;      // tracks if the last move shifted tiles or not
+  private long[] changedRows;   // rows written since clearChangedRows(), or null
+  private RowKernel kernel;     // made on the first wide shift if there are vector kernels
+  private byte[] shiftedRow;    // the kernel's output
+
+  // Build an empty board of the given size
+  public ByteBoard(int rows, int cols){
+    this.rows = rows;
+    this.cols = cols;
+    this.cells = new byte[rows*cols];
+    this.freeIndex = new FreeSpaceIndex(rows*cols);
+    this.shifted = false;
+  }
+
+  // Build a board that copies the 2D array of tiles provided
+  public ByteBoard(Tile t[][]){
+    this(t.length, t[0].length);
+    for(int i=0; i<this.rows; i++){
+      for(int j=0; j<this.cols; j++){
+        if(t[i][j] != null){
+          this.cells[i*this.cols + j] = encode(t[i][j]);
+          this.freeIndex.setFreeBit(i*this.cols + j, false);
+          this.hash ^= zobristKey(i*this.cols + j, this.cells[i*this.cols + j]);
+        }
+      }
+    }
+    this.freeIndex.recount();
+    for(int cell=0; cell<this.cells.length; cell++){
+      if(cell % this.cols + 1 < this.cols){
+        this.pairs += pairOf(this.cells[cell], this.cells[cell+1]);
+      }
+      if(cell + this.cols < this.cells.length){
+        this.pairs += pairOf(this.cells[cell], this.cells[cell+this.cols]);
+      }
+    }
+  }
+
+  // Create a distinct copy of the board including its internal tile
+  // positions and any other state
+  public Board copy(){
+    ByteBoard newBoard = new ByteBoard(this.rows, this.cols, this.cells.clone(),
+                                       this.freeIndex.copy());
+    newBoard.pairs = this.pairs;
+    newBoard.hash = this.hash;
+    newBoard.shifted = this.shifted;
+    return newBoard;
+  }
+
+  private ByteBoard(int rows, int cols, byte[] cells, FreeSpaceIndex freeIndex){
+    this.rows = rows;
+    this.cols = cols;
+    this.cells = cells;
+    this.freeIndex = freeIndex;
+  }
+
+  // Return the number of rows in the Board
+  public int getRows(){
+    return this.rows;
+  }
+
+  // Return the number of columns in the Board
+  public int getCols(){
+    return this.cols;
+  }
+
+  // Return how many tiles are present in the board (non-empty spaces)
+  public int getTileCount(){
+    return this.cells.length - this.freeIndex.freeCount();
+  }
+
+  // Return how many free spaces are in the board
+  public int getFreeSpaceCount(){
+    return this.freeIndex.freeCount();
+  }
+
+  // Get the tile at a particular location; null for a free space
+  public Tile tileAt(int i, int j){
+    if(i<0 || i>=this.rows || j<0 || j>=this.cols){
+      throw new RuntimeException("Out of bounds!");
+    }
+    return decode(this.cells[i*this.cols + j]);
+  }
+
+  // Start recording the rows every write lands in
+  public void clearChangedRows(){
+    if(this.changedRows == null){
+      this.changedRows = new long[(this.rows + 63) >>> 6];
+    }
+    else{
+      Arrays.fill(this.changedRows, 0L);
+    }
+  }
+
+  // The rows written since clearChangedRows(), or null
+  public long[] changedRows(){
+    return this.changedRows;
+  }
+
+  // true if the last shift operation moved any tile; false otherwise
+  public boolean lastShiftMovedTiles(){
+    return this.shifted;
+  }
+
+  // Zobrist hash of the board, kept by every write
+  public long zobristHash(){
+    return this.hash;
+  }
+
+  // Rough heap footprint in bytes: one byte per cell plus the index
+  public long estimatedBytes(){
+    return 48 + Board.arrayBytes(this.cells.length, 1) + this.freeIndex.estimatedBytes();
+  }
+
+  // true if no shift can change the board: it is full and no two
+  // side-by-side tiles merge. Both counts are kept by every write.
+  public boolean noMovesLeft(){
+    return this.freeIndex.freeCount() == 0 && this.pairs == 0;
+  }
+
+  // Return true if a shift left, right, up, or down would merge any
+  // tiles: some tile has an equal tile as the next one along its row
+  // or column, with only empty spaces between them.
+  public boolean mergePossible(){
+    // last non-empty code seen in each column on the way down
+    byte[] above = new byte[this.cols];
+    for(int i=0; i<this.rows; i++){
+      byte left = EMPTY;
+      int base = i*this.cols;
+      for(int j=0; j<this.cols; j++){
+        byte code = this.cells[base + j];
+        if(code == EMPTY){
+          continue;
+        }
+        if(code != BRICK && code < MAX_EXPONENT && (code == left || code == above[j])){
+          return true;
+        }
+        left = code;
+        above[j] = code;
+      }
+    }
+    return false;
+  }
+
+  // What shifting in each direction would score and whether it would
+  // move anything, found with one pass over the rows and one over the
+  // columns without changing the board
+  public MovePreview previewMoves(){
+    MovePreview.LineScan rows = new MovePreview.LineScan();
+    for(int i=0; i<this.rows; i++){
+      scanLine(rows, i*this.cols, 1, this.cols);
+    }
+    MovePreview.LineScan cols = new MovePreview.LineScan();
+    for(int j=0; j<this.cols; j++){
+      scanLine(cols, j, this.cols, this.rows);
+    }
+    return new MovePreview(rows, cols);
+  }
+
+  // Feed the len cells from cells[start], stepping by step, to scan
+  private void scanLine(MovePreview.LineScan scan, int start, int step, int len){
+    scan.startLine();
+    for(int k=0, cell=start; k<len; k++, cell+=step){
+      byte code = this.cells[cell];
+      if(code == EMPTY){
+        scan.empty();
+      }
+      else{
+        scan.tile(decode(code), code < MAX_EXPONENT);
+      }
+    }
+    scan.endLine();
+  }
+
+  // Add a the given tile to the board at the "freeL"th free space,
+  // counting row by row.
+  public void addTileAtFreeSpace(int freeL, Tile tile){
+    if(this.freeIndex.freeCount() == 0){
+      throw new RuntimeException("There are no free spaces!");
+    }
+    if(freeL < 0 || freeL >= this.freeIndex.freeCount()){
+      throw new RuntimeException("Spot "+freeL+" isn't free!");
+    }
+    setCode(this.freeIndex.select(freeL), encode(tile));
+  }
+
+  // Pretty-printed version of the board.
+  public String toString(){
+    StringBuilder stBu = new StringBuilder();
+    for(int i=0; i<this.rows; i++){
+      for(int j=0; j<this.cols; j++){
+        Tile t = tileAt(i,j);
+        if(t == null){
+          stBu.append(String.format("%4s ", "-"));
+        }
+        else{
+          stBu.append(String.format("%4s ", String.valueOf(t.getScore())));
+        }
+      }
+      stBu.append("\n");
+    }
+    return stBu.toString();
+  }
+
+  // The cell codes, one row per line, in hex
+  public String debugString(){
+    StringBuilder stBu = new StringBuilder();
+    for(int i=0; i<this.rows; i++){
+      for(int j=0; j<this.cols; j++){
+        stBu.append(String.format("%02x ", this.cells[i*this.cols + j]));
+      }
+      stBu.append("\n");
+    }
+    return stBu.toString();
+  }
+
+  // Shift the tiles of Board in various directions. Every line is
+  // shifted toward its first cell by shiftLine(); the four directions
+  // only differ in where each line starts and which way it runs.
+  public int shiftLeft(){
+    this.shifted = false;
+    int score = 0;
+    for(int i=0; i<this.rows; i++){
+      score += shiftRow(i*this.cols, 1);
+    }
+    return score;
+  }
+
+  public int shiftRight(){
+    this.shifted = false;
+    int score = 0;
+    for(int i=0; i<this.rows; i++){
+      score += shiftRow(i*this.cols + this.cols-1, -1);
+    }
+    return score;
+  }
+
+  public int shiftUp(){
+    this.shifted = false;
+    int score = 0;
+    for(int j=0; j<this.cols; j++){
+      score += shiftLine(j, this.cols, this.rows);
+    }
+    return score;
+  }
+
+  public int shiftDown(){
+    this.shifted = false;
+    int score = 0;
+    for(int j=0; j<this.cols; j++){
+      score += shiftLine((this.rows-1)*this.cols + j, -this.cols, this.rows);
+    }
+    return score;
+  }
+
+  // Shift the len cells starting at cells[start] and stepping by step
+  // toward start, in place. Bricks stay put and nothing passes them;
+  // each tile merges at most once. Returns the score.
+  private int shiftLine(int start, int step, int len){
+    byte[] cells = this.cells;
+    int score = 0;
+    int write = start;          // where the next moving tile lands
+    int last = -1;              // last tile placed, if it may still merge
+    int cell = start;
+    for(int k=0; k<len; k++, cell+=step){
+      byte code = cells[cell];
+      if(code == EMPTY){
+        continue;
+      }
+      if(code == BRICK){
+        write = cell + step;
+        last = -1;
+        continue;
+      }
+      if(last >= 0 && cells[last] == code && code < MAX_EXPONENT){
+        setCode(last, (byte) (code + 1));
+        setCode(cell, EMPTY);
+        score += 1 << (code + 1);
+        this.shifted = true;
+        last = -1;
+        continue;
+      }
+      if(cell != write){
+        setCode(write, code);
+        setCode(cell, EMPTY);
+        this.shifted = true;
+      }
+      last = write;
+      write += step;
+    }
+    return score;
+  }
+
+  // Shift the row starting at cells[start] toward start, which is its
+  // first cell for step 1 and its last for step -1. Same result as
+  // shiftLine(), but in a wide row each run of eight cells is first
+  // looked at as one long: eight empty cells hold nothing to place, and
+  // eight tiles with no gap in front of them, no brick and no two equal
+  // side by side stay exactly where they are. Either way the chunk is
+  // passed over with no per-cell work; any other chunk goes cell by
+  // cell as in shiftLine() before the next chunk is looked at.
+  private int shiftRow(int start, int step){
+    int len = this.cols;
+    if(len < WIDE_ROW){
+      return shiftLine(start, step, len);
+    }
+    if(VECTOR_KERNELS != null){
+      return shiftRowVector(step > 0 ? start : start-len+1, step < 0);
+    }
+    byte[] cells = this.cells;
+    int score = 0;
+    int write = start;
+    int last = -1;
+    int cell = start;
+    int k = 0;
+    int scalarTo = 0;           // cells before this go one by one
+    while(k < len){
+      if(k >= scalarTo && k + 8 <= len){
+        // the chunk's cells in memory order, whichever way the row runs
+        long chunk = (long) CHUNK.get(cells, step > 0 ? cell : cell-7);
+        if(chunk == 0){
+          k += 8;
+          cell += 8*step;
+          continue;
+        }
+        if(cell == write && isSettled(chunk) && (last < 0 || cells[last] != cells[cell])){
+          last = cell + 7*step;
+          write = cell + 8*step;
+          k += 8;
+          cell += 8*step;
+          continue;
+        }
+        scalarTo = k + 8;
+      }
+      // one cell, exactly as shiftLine() does it
+      byte code = cells[cell];
+      if(code == BRICK){
+        write = cell + step;
+        last = -1;
+      }
+      else if(code != EMPTY){
+        if(last >= 0 && cells[last] == code && code < MAX_EXPONENT){
+          setCode(last, (byte) (code + 1));
+          setCode(cell, EMPTY);
+          score += 1 << (code + 1);
+          this.shifted = true;
+          last = -1;
+        }
+        else{
+          if(cell != write){
+            setCode(write, code);
+            setCode(cell, EMPTY);
+            this.shifted = true;
+          }
+          last = write;
+          write += step;
+        }
+      }
+      k++;
+      cell += step;
+    }
+    return score;
+  }
+
+  // Shift the row starting at cells[from] with the vector kernel and
+  // write back only the cells that changed
+  private int shiftRowVector(int from, boolean reverse){
+    int len = this.cols;
+    if(this.kernel == null){
+      this.kernel = VECTOR_KERNELS.get();
+      this.shiftedRow = new byte[len];
+    }
+    byte[] row = this.shiftedRow;
+    int score = this.kernel.shiftRow(this.cells, from, len, reverse, row);
+    int j = 0;
+    while(j < len){
+      int d = Arrays.mismatch(this.cells, from+j, from+len, row, j, len);
+      if(d < 0){
+        break;
+      }
+      j += d;
+      setCode(from+j, row[j]);
+      this.shifted = true;
+      j++;
+    }
+    return score;
+  }
+
+  // The constructor of vector/ByteRowVectors if -Dgame2048.vectorShift
+  // is true and it can be loaded, found by name so everything else
+  // builds and runs without the incubator module; otherwise null
+  private static Supplier<RowKernel> vectorKernels(){
+    if(!Boolean.getBoolean("game2048.vectorShift")){
+      return null;
+    }
+    try{
+      Constructor<?> made = Class.forName("ByteRowVectors").getDeclaredConstructor();
+      made.newInstance();       // links the vector API now rather than mid-shift
+      return () -> {
+        try{
+          return (RowKernel) made.newInstance();
+        }
+        catch(ReflectiveOperationException e){
+          throw new RuntimeException("Can't make a vector row kernel", e);
+        }
+      };
+    }
+    catch(ReflectiveOperationException | LinkageError e){
+      return null;
+    }
+  }
+
+  // true if wide rows are shifted by the vector kernel
+  public static boolean usesVectorShift(){
+    return VECTOR_KERNELS != null;
+  }
+
+  // true if a chunk of eight cells holds eight tiles, none of them a
+  // brick and no two side by side equal, so nothing in it can move or
+  // merge with its neighbour in the chunk
+  private static boolean isSettled(long chunk){
+    if(hasZeroByte(chunk) || hasZeroByte(chunk ^ BRICKS)){
+      return false;
+    }
+    // byte b of this is cell b xor cell b+1; the top byte is the last
+    // cell itself, which is not zero
+    return !hasZeroByte(chunk ^ (chunk >>> 8));
+  }
+
+  // true if any of the eight bytes of x is zero
+  private static boolean hasZeroByte(long x){
+    return ((x - ONES) & ~x & HIGHS) != 0;
+  }
+
+  // Write a code into a cell, keeping the free space index, the
+  // mergeable pair count and the hash in step
+  private void setCode(int cell, byte code){
+    byte old = this.cells[cell];
+    if(old == code){
+      return;
+    }
+    this.pairs -= pairsAround(cell);
+    this.cells[cell] = code;
+    this.pairs += pairsAround(cell);
+    this.hash ^= zobristKey(cell, old) ^ zobristKey(cell, code);
+    if(this.changedRows != null){
+      int row = cell / this.cols;
+      this.changedRows[row >>> 6] |= 1L << row;
+    }
+    if(old == EMPTY){
+      this.freeIndex.markFilled(cell);
+    }
+    else if(code == EMPTY){
+      this.freeIndex.markFree(cell);
+    }
+  }
+
+  // How many of the cell's four neighbours merge with it
+  private int pairsAround(int cell){
+    byte code = this.cells[cell];
+    if(!mergeable(code)){
+      return 0;
+    }
+    int col = cell % this.cols;
+    int count = 0;
+    if(col > 0 && this.cells[cell-1] == code){ count++; }
+    if(col+1 < this.cols && this.cells[cell+1] == code){ count++; }
+    if(cell >= this.cols && this.cells[cell-this.cols] == code){ count++; }
+    if(cell+this.cols < this.cells.length && this.cells[cell+this.cols] == code){ count++; }
+    return count;
+  }
+
+  // Zobrist key of a cell holding a code; 0 for an empty space
+  private static long zobristKey(int cell, byte code){
+    if(code == EMPTY){
+      return 0;
+    }
+    return Zobrist.key(cell, code == BRICK ? Zobrist.BRICK : 1 << code);
+  }
+
+  // 1 if two side-by-side codes merge, else 0
+  private static int pairOf(byte a, byte b){
+    return a == b && mergeable(a) ? 1 : 0;
+  }
+
+  // true for codes of tiles which can still merge
+  private static boolean mergeable(byte code){
+    return code != EMPTY && code != BRICK && code < MAX_EXPONENT;
+  }
+
+  // Return the code for the given tile
+  static byte encode(Tile tile){
+    if(!tile.isMovable()){
+      return BRICK;
+    }
+    int value = tile.getScore();
+    if(!(tile instanceof TwoNTile) || value < 2 || (value & (value-1)) != 0){
+      String msg = String.format("ByteBoard can't hold tile |%s|", tile);
+      throw new RuntimeException(msg);
+    }
+    return (byte) Integer.numberOfTrailingZeros(value);
+  }
+
+  // Return the tile for a code; null for an empty space
+  static Tile decode(byte code){
+    if(code == EMPTY){
+      return null;
+    }
+    if(code == BRICK){
+      return BRICK_TILE;
+    }
+    return TwoNTile.valueOf(1 << code);
+  }
+
+}
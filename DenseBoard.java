@@ -1,5 +1,6 @@
 import java.util.*;
 import java.lang.*;
+import java.util.concurrent.*;
 
 // Tracks the positions of an arbitrary 2D grid of Tiles.  
 public class DenseBoard extends Board {
@@ -9,6 +10,22 @@ public class DenseBoard extends Board {
   private int c;				//number of columns
   private int free;				//the number of free spaces
   private boolean shifted;		//tracks if the last move shifted tiles or not
+  private ShiftTable rowTable;	//shared table for rows, null if too wide
+  private ShiftTable colTable;	//shared table for columns, null if too tall
+  private Tile[] line;			//scratch space for the line being shifted
+  private FreeSpaceIndex freeIndex;	//which cells are free, in row-major order
+  private int pairs;			//side-by-side tiles which merge with each other
+  private long hash;			//Zobrist hash, kept by every write
+  private long[] changedRows;	//rows written since clearChangedRows(), or null
+
+  //Boards with at least this many cells shift their lines in parallel
+  //	on the common ForkJoinPool; smaller boards shift on the calling
+  //	thread. Set with -Dgame2048.parallelCells=N; by default 1M cells,
+  //	or never on a single core.
+  public static final long PARALLEL_CELLS = Long.getLong("game2048.parallelCells",
+  	  (ForkJoinPool.getCommonPoolParallelism()>1) ? 1L<<20 : Long.MAX_VALUE);
+  //A parallel task stops splitting once it has about this many cells
+  private static final int TASK_CELLS = 1<<14;
   
   //Builds an empty Board of the specified size
   public DenseBoard(int rows, int cols)
@@ -18,6 +35,8 @@ public class DenseBoard extends Board {
   	  this.gameBoard = new Tile[rows][cols];
   	  this.free = r*c;
   	  this.shifted = false;
+  	  this.freeIndex = new FreeSpaceIndex(r*c);
+  	  setUpShifts();
   }
 
   //Builds a board that copies the 2D array of tiles provided 
@@ -30,6 +49,8 @@ public class DenseBoard extends Board {
   	  this.free = 0;
   	  Tile temp;
   	  this.shifted = false;
+  	  this.freeIndex = new FreeSpaceIndex(this.r*this.c);
+  	  setUpShifts();
   	  
   	  for(int row = 0; row<=(t.length-1); row++)
   	  {
@@ -39,9 +60,87 @@ public class DenseBoard extends Board {
   	  	  	  this.gameBoard[row][col] = temp;
   	  	  	  if(t[row][col]==null)
   	  	  	  	  this.free++;
+  	  	  	  else
+  	  	  	  {
+  	  	  	  	  this.freeIndex.setFreeBit(row*this.c+col, false);
+  	  	  	  	  this.hash ^= Zobrist.key((long)row*this.c+col, temp);
+  	  	  	  }
   	  	  }
   	  }
-  	  
+  	  this.freeIndex.recount();
+
+  	  //counts the mergeable pairs once; writes keep the count after that
+  	  for(int row = 0; row<this.r; row++)
+  	  {
+  	  	  for(int col = 0; col<this.c; col++)
+  	  	  {
+  	  	  	  if(col+1<this.c)
+  	  	  	  	  this.pairs += pairOf(this.gameBoard[row][col], this.gameBoard[row][col+1]);
+  	  	  	  if(row+1<this.r)
+  	  	  	  	  this.pairs += pairOf(this.gameBoard[row][col], this.gameBoard[row+1][col]);
+  	  	  }
+  	  }
+  }
+  
+  //Grabs the shared shift tables for this board's row and column widths
+  private void setUpShifts()
+  {
+  	  this.rowTable = ShiftTable.forWidth(this.c);
+  	  this.colTable = ShiftTable.forWidth(this.r);
+  	  this.line = new Tile[Math.max(this.r, this.c)];
+  }
+
+  //Writes a tile (or null) into a spot, keeping the free count, the
+  //	free space index, the mergeable pair count and the hash in step
+  //	with the grid
+  private void setCell(int row, int col, Tile t)
+  {
+  	  Tile old = this.gameBoard[row][col];
+  	  if(old==t)
+  	  	  return;
+  	  this.pairs -= pairsAround(row, col);
+  	  this.gameBoard[row][col] = t;
+  	  this.pairs += pairsAround(row, col);
+  	  if(this.changedRows!=null)
+  	  	  this.changedRows[row>>>6] |= 1L<<row;
+  	  long cell = (long)row*this.c+col;
+  	  this.hash ^= Zobrist.key(cell, old) ^ Zobrist.key(cell, t);
+  	  if((old==null)&&(t!=null))
+  	  {
+  	  	  this.free--;
+  	  	  this.freeIndex.markFilled(row*this.c+col);
+  	  }
+  	  else if((old!=null)&&(t==null))
+  	  {
+  	  	  this.free++;
+  	  	  this.freeIndex.markFree(row*this.c+col);
+  	  }
+  }
+
+  //How many of the spot's four neighbours merge with its tile
+  private int pairsAround(int row, int col)
+  {
+  	  Tile t = this.gameBoard[row][col];
+  	  if(t==null)
+  	  	  return 0;
+  	  int count = 0;
+  	  if(col>0)
+  	  	  count += pairOf(t, this.gameBoard[row][col-1]);
+  	  if(col+1<this.c)
+  	  	  count += pairOf(t, this.gameBoard[row][col+1]);
+  	  if(row>0)
+  	  	  count += pairOf(t, this.gameBoard[row-1][col]);
+  	  if(row+1<this.r)
+  	  	  count += pairOf(t, this.gameBoard[row+1][col]);
+  	  return count;
+  }
+
+  //1 if both spots hold tiles which merge, else 0
+  private static int pairOf(Tile a, Tile b)
+  {
+  	  if((a==null)||(b==null)||(!a.mergesWith(b)))
+  	  	  return 0;
+  	  return 1;
   }
   
 //------------------------------------------------------------------------------
@@ -51,9 +150,26 @@ public class DenseBoard extends Board {
   //	positions and any other state
   public Board copy()
   {
-  	  DenseBoard newBoard = new DenseBoard(this.gameBoard);
-  	  newBoard.shifted = this.shifted;
-  	  return newBoard;
+  	  return new DenseBoard(this);
+  }
+
+  //Builds a copy of another board, taking its counts, free space index
+  //	and hash as they stand rather than recounting them from the grid
+  private DenseBoard(DenseBoard other)
+  {
+  	  this.r = other.r;
+  	  this.c = other.c;
+  	  this.gameBoard = new Tile[this.r][];
+  	  for(int row = 0; row<this.r; row++)
+  	  	  this.gameBoard[row] = other.gameBoard[row].clone();
+  	  this.free = other.free;
+  	  this.shifted = other.shifted;
+  	  this.rowTable = other.rowTable;
+  	  this.colTable = other.colTable;
+  	  this.line = new Tile[other.line.length];
+  	  this.freeIndex = other.freeIndex.copy();
+  	  this.pairs = other.pairs;
+  	  this.hash = other.hash;
   }
 
   // Return the number of rows in the Board
@@ -90,22 +206,64 @@ public class DenseBoard extends Board {
   	  return temp;
   }
 
+  // Fill row with the tiles of row i, null for free spaces
+  public void readRow(int i, Tile[] row)
+  {
+  	  System.arraycopy(this.gameBoard[i], 0, row, 0, this.c);
+  }
+
+  // Start recording the rows every write lands in
+  public void clearChangedRows()
+  {
+  	  if(this.changedRows==null)
+  	  	  this.changedRows = new long[(this.r+63)>>>6];
+  	  else
+  	  	  Arrays.fill(this.changedRows, 0L);
+  }
+
+  // The rows written since clearChangedRows(), or null
+  public long[] changedRows()
+  {
+  	  return this.changedRows;
+  }
+
   // true if the last shift operation moved any tile; false otherwise
   public boolean lastShiftMovedTiles()
   {
   	  return this.shifted;
   }
+
+  // Zobrist hash of the board, kept by every write
+  public long zobristHash()
+  {
+  	  return this.hash;
+  }
+
+  // Rough heap footprint in bytes: a reference per cell whether or not
+  // it holds a tile, plus the scratch line and the free space index
+  public long estimatedBytes()
+  {
+  	  return 64 + arrayBytes(this.r, 4) + this.r*arrayBytes(this.c, 4)
+  	  	  + arrayBytes(this.line.length, 4) + this.freeIndex.estimatedBytes();
+  }
   
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
 
+  // true if no shift can change the board: every spot is full and no
+  // two side-by-side tiles merge. Both counts are kept as the board
+  // changes, so this is O(1).
+  public boolean noMovesLeft()
+  {
+  	  return (this.free==0)&&(this.pairs==0);
+  }
+
   // Return true if a shift left, right, up, or down would merge any
   // tiles. If no shift would cause any tiles to merge, return false.
   public boolean mergePossible()
   {
-  	  System.out.println("making the 0 tiles");
-  	  Tile temp1 = new TwoNTile(0);
-  	  Tile temp2 = new TwoNTile(0);
+  	  Tile temp1;
+  	  Tile temp2;
   	  boolean test = false;
   	  
   	  //check the bottom and the right, snaking right and down
@@ -156,44 +314,52 @@ public class DenseBoard extends Board {
   	  return false;
   }
 
-  //Adds a random tile to a free spot
+  //What shifting in each direction would score and whether it would
+  //	move anything, found with one pass over the rows and one over
+  //	the columns without changing the board
+  public MovePreview previewMoves()
+  {
+  	  MovePreview.LineScan rows = new MovePreview.LineScan();
+  	  for(int row = 0; row<this.r; row++)
+  	  {
+  	  	  rows.startLine();
+  	  	  for(int col = 0; col<this.c; col++)
+  	  	  {
+  	  	  	  if(this.gameBoard[row][col]==null)
+  	  	  	  	  rows.empty();
+  	  	  	  else
+  	  	  	  	  rows.tile(this.gameBoard[row][col]);
+  	  	  }
+  	  	  rows.endLine();
+  	  }
+  	  MovePreview.LineScan cols = new MovePreview.LineScan();
+  	  for(int col = 0; col<this.c; col++)
+  	  {
+  	  	  cols.startLine();
+  	  	  for(int row = 0; row<this.r; row++)
+  	  	  {
+  	  	  	  if(this.gameBoard[row][col]==null)
+  	  	  	  	  cols.empty();
+  	  	  	  else
+  	  	  	  	  cols.tile(this.gameBoard[row][col]);
+  	  	  }
+  	  	  cols.endLine();
+  	  }
+  	  return new MovePreview(rows, cols);
+  }
+
+  //Adds a tile at the freeL'th free spot, counting row by row. The
+  //	free space index finds the spot in O(log(R*C)).
   public void addTileAtFreeSpace(int freeL, Tile tile) throws RuntimeException
   {
   	  //stops it if there aren't any free spaces available
   	  if(this.free == 0)
   	  	  throw new RuntimeException("There are no free spaces!");
-  	  if(freeL>this.free)
+  	  if((freeL<0)||(freeL>=this.free))
   	  	  throw new RuntimeException("That free space doesn't exist!");
-  	  
-  	  //the trackers
-  	  int nullCount = 0;
-  	  boolean found = false;
-  	  
-  	  //loops through board counting nulls
-  	  for(int row = 0; row<=(this.gameBoard.length-1); row++)					
-  	  {
-  	  	  for(int col = 0; col<=(this.gameBoard[row].length-1); col++)
-  	  	  {
- 	  	  	  //if the spot is free
-  	  	  	  if((this.gameBoard[row][col])==null)
-  	  	  	  {
-  	  	  	  //if it is the right spot
-  	  	  	  	  if(nullCount==freeL)
-  	  	  	  	  {
-  	  	  	  	  	  //insert the tile
-  	  	  	  	  	  this.gameBoard[row][col] = tile;
-  	  	  	  	  	  found = true;
-  	  	  	  	  	  this.free--;
-  	  	  	  	  }
-  	  	  	  	  nullCount++;  	  	  	  	  
-  	  	  	  }
-  	  	  	  //no need to continue if the tile is added
-  	  	  	  if(found)
-  	  	  	  	  break;
-  	  	  }
-  	  	  if(found)
-  	  	  	  break;
-  	  }
+
+  	  int spot = this.freeIndex.select(freeL);
+  	  setCell(spot/this.c, spot%this.c, tile);
   }
 
   // Pretty-printed version of the board.
@@ -231,644 +397,274 @@ public class DenseBoard extends Board {
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
 
-  // Shift the tiles of Board in various directions. 
+  // Shift the tiles of Board in various directions. Every line is
+  // shifted toward its first cell by shiftLine(); the four directions
+  // only differ in where each line starts and which way it runs. Big
+  // boards hand their lines to shiftParallel() instead.
   public int shiftLeft()
   {
   	  this.shifted = false;
-  	  
-  	  //tracks points scored during shift
+  	  if(shiftsInParallel())
+  	  	  return shiftParallel(0, 0, 1, 0, 0, 1, this.r, this.c, this.rowTable);
   	  int shiftScore = 0;
-  	  //marks the head spot in the direction the board is shifting
-  	  boolean firstSpot = true;
-  	  //tracks the freespaces
-  	  boolean haveFree = false;
-  	  boolean haveTile = false;
-  	  //checks whether tiles are mergable or not
-  	  boolean mrgChk = false;
-  	  //tracks the freespace and savedTile row coordinate
-  	  int freeR = 0;
-  	  int tileR = 0;
-  	  //tracks the freespace and savedTile collumn coordinate
-  	  int freeC = 0;
-  	  int tileC = 0;
-  	  //holds the last tile shifted, to check for merges
-  	  Tile savedT = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP LEFT and finishing at the BOTTOM RIGHT
-  	  for(int row = 0; row<=(this.gameBoard.length-1); row++)					
-  	  {
-  	  	  for(int col = 0; col<=(this.gameBoard[row].length-1); col++)
-  	  	  {
-  	  	  	  
-  	  	  	  //saves the first spot as empty coordinates or tile
-  	  	  	  if(firstSpot)
-  	  	  	  {
-  	  	  	  	  //if the spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  haveFree = true;
-  	  	  	  	  }
-  	  	  	  	  //if the spot has a tile...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  haveTile = true;
-  	  	  	  	  }
-  	  	  	  	  firstSpot = false;	  
-  	  	  	  }
-//------------------------------
-  	  	  	  //if this is not the first spot...
-  	  	  	  else
-  	  	  	  {
-  	  	  	  	  //if this spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  //if there isnt a saved freespace...
-  	  	  	  	  	  if(haveFree==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  	  haveFree = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if a freespace is already saved...
-  	  	  	  	  	  else
-  	  	  	  	  	  	  continue;
-  	  	  	  	  }
-  	  	  	  	  //if there is a tile in this spot...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  //if a tile hasn't been saved
-  	  	  	  	  	  if(haveTile==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  //this is also not the first spot, 
-  	  	  	  	  	  	  //	so it must be shifted because there's a 
-  	  	  	  	  	  	  //	free space behind it
-  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  tileR = freeR;
-  	  	  	  	  	  	  tileC = freeC;
-  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  
-  	  	  	  	  	  	  //only one free-coordinate is shifted, which 
-  	  	  	  	  	  	  //	would mark the next freespace in that line
-  	  	  	  	  	  	  freeC++;
-  	  	  	  	  	  	  haveTile = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if this is not the first tile
-  	  	  	  	  	  else
-  	  	  	  	  	  {
-  	  	  	  	  	  	  mrgChk = savedT.mergesWith(this.gameBoard[row][col]);
-  	  	  	  	  	  	  //if the tiles can merge
-  	  	  	  	  	  	  if(mrgChk==true)
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  Tile newT = new TwoNTile(0);
-  	  	  	  	  	  	  	  try{
-  	  	  	  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  	  	  	  newT= savedT.merge(this.gameBoard[row][col]);
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  	  	  	  //collects the points earned
-  	  	  	  	  	  	  	  shiftScore += newT.getScore();
-  	  	  	  	  	  	  	  //replaces the static tile with the merged tile
-  	  	  	  	  	  	  	  this.gameBoard[tileR][tileC] = newT;
-  	  	  	  	  	  	  	  //sets the spot of the moved tile to null
-  	  	  	  	  	  	  	  this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  
-  	  	  	  	  	  	  	  //claims this as the new saved free spot
-  	  	  	  	  	  	  	  freeR = tileR;
-  	  	  	  	  	  	  	  freeC = tileC+1;
-  	  	  	  	  	  	  	  haveFree = true;
-  	  	  	  	  	  	  	  //and claims the new saved tile
-  	  	  	  	  	  	  	  savedT = new TwoNTile(0);	  
-  	  	  	  	  	  	  	  
-  	  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  	  this.free++;
-  	  	  	  	  	  	  }
-  	  	  	  	  	  	  //if the tiles can't merge
-  	  	  	  	  	  	  else
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  //if there were only tiles before, 
-  	  	  	  	  	  	  	  //	we can't shift it
-  	  	  	  	  	  	  	  if(haveFree==true)
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  		//shifts the tile over
-  	  	  	  	  	  	  	  		savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  		this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  	  		tileR = freeR;
-  	  	  	  	  	  	  	  		tileC = freeC;
-  	  	  	  	  	  	  	  		this.shifted = true;
-  	  	  	  	  	  	  	  		//frees up spot
-  	  	  	  	  	  	  	  		this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  		//the new freespace coordinate
-  	  	  	  	  	  	  	  		freeC++;
-  	  	  	  	  	  	  	  		
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  //else, make this the new saved tile
-  	  	  	  	  	  	  	  else
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  }
-  	  	  	  	  	  }
-  	  	  	  	  //exit tile check
-  	  	  	  	  }
-  	  	  	  //exit not-first-spot check
-  	  	  	  }
-  	  	  //exit col for loop
-  	  	  }
-  	  	  
-  	  	  //reset the booleans for the next line of spots
-  	  	  firstSpot = true;
-  	  	  haveFree = false;
-  	  	  haveTile = false;
-  	  }
+  	  for(int row = 0; row<this.r; row++)
+  	  	  shiftScore += shiftLine(row, 0, 0, 1, this.c, this.rowTable);
   	  return shiftScore;
   }
 
-//------------------------------------------------------------------------------  
-//shifts the tiles right
   public int shiftRight()
   {
   	  this.shifted = false;
-  	  //tracks points scored during shift
+  	  if(shiftsInParallel())
+  	  	  return shiftParallel(0, this.c-1, 1, 0, 0, -1, this.r, this.c, this.rowTable);
   	  int shiftScore = 0;
-  	  //marks the head spot in the direction the board is shifting
-  	  boolean firstSpot = true;
-  	  //tracks the freespaces
-  	  boolean haveFree = false;
-  	  boolean haveTile = false;
-  	  //checks whether tiles are mergable or not
-  	  boolean mrgChk = false;
-  	  //tracks the freespace and savedTile row coordinate
-  	  int freeR = 0;
-  	  int tileR = 0;
-  	  //tracks the freespace and savedTile collumn coordinate
-  	  int freeC = 0;
-  	  int tileC = 0;
-  	  //holds the last tile shifted, to check for merges
-  	  Tile savedT = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP RIGHT and finishing at the BOTTOM LEFT
-  	  for(int row = 0; row<=(this.gameBoard.length-1); row++)
+  	  for(int row = 0; row<this.r; row++)
+  	  	  shiftScore += shiftLine(row, this.c-1, 0, -1, this.c, this.rowTable);
+  	  return shiftScore;
+  }
+
+  public int shiftUp()
+  {
+  	  this.shifted = false;
+  	  if(shiftsInParallel())
+  	  	  return shiftParallel(0, 0, 0, 1, 1, 0, this.c, this.r, this.colTable);
+  	  int shiftScore = 0;
+  	  for(int col = 0; col<this.c; col++)
+  	  	  shiftScore += shiftLine(0, col, 1, 0, this.r, this.colTable);
+  	  return shiftScore;
+  }
+
+  public int shiftDown()
+  {
+  	  this.shifted = false;
+  	  if(shiftsInParallel())
+  	  	  return shiftParallel(this.r-1, 0, 0, 1, -1, 0, this.c, this.r, this.colTable);
+  	  int shiftScore = 0;
+  	  for(int col = 0; col<this.c; col++)
+  	  	  shiftScore += shiftLine(this.r-1, col, -1, 0, this.r, this.colTable);
+  	  return shiftScore;
+  }
+
+  //true if this board is big enough to shift in parallel
+  private boolean shiftsInParallel()
+  {
+  	  return (long)this.r*this.c>=PARALLEL_CELLS;
+  }
+
+  //Shifts one line of len cells toward (row,col), stepping (dRow,dCol)
+  //	from there. Lines which fit the ShiftTable are shifted with a
+  //	single lookup; others (too wide, or holding tiles with no code)
+  //	go through ShiftTable.shiftTiles(). Returns the score.
+  private int shiftLine(int row, int col, int dRow, int dCol, int len, ShiftTable table)
+  {
+  	  Tile[] line = this.line;
+  	  long result = shiftedLine(row, col, dRow, dCol, len, table, line);
+  	  if(!ShiftTable.movedOf(result))
+  	  	  return 0;
+
+  	  //scatter the shifted line back
+  	  for(int k = 0; k<len; k++)
+  	  	  setCell(row+k*dRow, col+k*dCol, line[k]);
+  	  this.shifted = true;
+  	  return ShiftTable.scoreOf(result);
+  }
+
+  //Reads the line of len cells from (row,col) into line and shifts it
+  //	there, returning the ShiftTable result. The board is not changed.
+  private long shiftedLine(int row, int col, int dRow, int dCol, int len, ShiftTable table, Tile[] line)
+  {
+  	  int code = 0;
+  	  //gather the line, encoding it as we go if there is a table
+  	  for(int k = 0; k<len; k++)
   	  {
-  	  	  for(int col = (this.gameBoard[0].length-1); col >= 0; col--)
+  	  	  Tile t = this.gameBoard[row+k*dRow][col+k*dCol];
+  	  	  line[k] = t;
+  	  	  if(table!=null)
   	  	  {
-  	  	  	  
-  	  	  	  //saves the first spot as empty coordinates or tile
-  	  	  	  if(firstSpot)
-  	  	  	  {
-  	  	  	  	  //if the spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  haveFree = true;
-  	  	  	  	  }
-  	  	  	  	  //if the spot has a tile...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  haveTile = true;
-  	  	  	  	  }
-  	  	  	  	  firstSpot = false;	  
-  	  	  	  }
-//------------------------------
-  	  	  	  //if this is not the first spot...
+  	  	  	  int tc = ShiftTable.encode(t);
+  	  	  	  //the table won't merge its largest code, but the tiles would
+  	  	  	  if((tc<0)||(tc==ShiftTable.MAX_EXPONENT))
+  	  	  	  	  table = null;
   	  	  	  else
+  	  	  	  	  code |= tc << (4*k);
+  	  	  }
+  	  }
+
+  	  long result;
+  	  if(table!=null)
+  	  {
+  	  	  result = table.lookup(code);
+  	  	  if(ShiftTable.movedOf(result))
+  	  	  {
+  	  	  	  //only cells whose code changed need a new tile; bricks never move
+  	  	  	  int newCode = ShiftTable.rowOf(result);
+  	  	  	  for(int k = 0; k<len; k++)
   	  	  	  {
-  	  	  	  	  //if this spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  //if there isnt a saved freespace...
-  	  	  	  	  	  if(haveFree==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  	  haveFree = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if a freespace is already saved...
-  	  	  	  	  	  else
-  	  	  	  	  	  	  continue;
-  	  	  	  	  }
-  	  	  	  	  //if there is a tile in this spot...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  //if a tile hasn't been saved
-  	  	  	  	  	  if(haveTile==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  //this is also not the first spot, 
-  	  	  	  	  	  	  //	so it must be shifted because there's a 
-  	  	  	  	  	  	  //	free space behind it
-  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  tileR = freeR;
-  	  	  	  	  	  	  tileC = freeC;
-  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  this.gameBoard[row][col] = null;  	  	  	  	  	  	  
-  	  	  	  	  	  	  //only one free-coordinate is shifted, which 
-  	  	  	  	  	  	  //	would mark the next freespace in that line
-  	  	  	  	  	  	  freeC--;
-  	  	  	  	  	  	  haveTile = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if this is not the first tile
-  	  	  	  	  	  else
-  	  	  	  	  	  {
-  	  	  	  	  	  	  mrgChk = savedT.mergesWith(this.gameBoard[row][col]);
-  	  	  	  	  	  	  //if the tiles can merge
-  	  	  	  	  	  	  if(mrgChk==true)
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  Tile newT = new TwoNTile(0);
-  	  	  	  	  	  	  	  try{
-  	  	  	  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  	  	  	  newT= savedT.merge(this.gameBoard[row][col]);
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  	  	  	  //collects the points earned
-  	  	  	  	  	  	  	  shiftScore += newT.getScore();
-  	  	  	  	  	  	  	  //replaces the static tile with the merged tile
-  	  	  	  	  	  	  	  this.gameBoard[tileR][tileC] = newT;
-  	  	  	  	  	  	  	  //sets the spot of the moved tile to null
-  	  	  	  	  	  	  	  this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  //claims this as the new saved free spot
-  	  	  	  	  	  	  	  freeR = tileR;
-  	  	  	  	  	  	  	  freeC = tileC-1;
-  	  	  	  	  	  	  	  haveFree = true;
-  	  	  	  	  	  	  	  //and claims the new saved tile
-  	  	  	  	  	  	  	  savedT = new TwoNTile(0);
-  	  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  	  this.free++;
-  	  	  	  	  	  	  }
-  	  	  	  	  	  	  //if the tiles can't merge
-  	  	  	  	  	  	  else
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  //if there were only tiles before, 
-  	  	  	  	  	  	  	  //	we can't shift it
-  	  	  	  	  	  	  	  if(haveFree==true)
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  		//shifts the tile over
-  	  	  	  	  	  	  	  		savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  		this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  	  		tileR = freeR;
-  	  	  	  	  	  	  	  		tileC = freeC;
-  	  	  	  	  	  	  	  		this.shifted = true;
-  	  	  	  	  	  	  	  		//frees up spot
-  	  	  	  	  	  	  	  		this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  		//the new freespace coordinate
-  	  	  	  	  	  	  	  		freeC--;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  //else, make this the new saved tile
-  	  	  	  	  	  	  	  else
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  }
-  	  	  	  	  	  }
-  	  	  	  	  //exit tile check
-  	  	  	  	  }
-  	  	  	  //exit not-first-spot check
+  	  	  	  	  int nc = (newCode >>> (4*k)) & 0xF;
+  	  	  	  	  if(nc != ((code >>> (4*k)) & 0xF))
+  	  	  	  	  	  line[k] = ShiftTable.decode(nc);
   	  	  	  }
-  	  	  //exit col for loop
   	  	  }
-  	  	  
-  	  	  //reset the booleans for the next line of spots
-  	  	  firstSpot = true;
-  	  	  haveFree = false;
-  	  	  haveTile = false;
   	  }
-  	  return shiftScore;
+  	  else
+  	  	  result = ShiftTable.shiftTiles(line, len);
+  	  return result;
   }
 
-//------------------------------------------------------------------------------  
-//shifts the tiles up
-  public int shiftUp()
+  //Shifts lines lines of len cells on the common ForkJoinPool. Line x
+  //	starts at (row0+x*lRow, col0+x*lCol) and steps (dRow,dCol). The
+  //	lines are split between tasks which write their tiles straight
+  //	into the grid and hand back score, moved flag, hash changes and
+  //	changed rows to be combined; the free space index, free count and pair count, which
+  //	span lines, are then rebuilt by a second pass over the cells.
+  private int shiftParallel(int row0, int col0, int lRow, int lCol, int dRow, int dCol,
+  	  	  	  	  	  	  int lines, int len, ShiftTable table)
   {
-  	  this.shifted = false;
-  	  //tracks points scored during shift
-  	  int shiftScore = 0;
-  	  //marks the head spot in the direction the board is shifting
-  	  boolean firstSpot = true;
-  	  //tracks the freespaces
-  	  boolean haveFree = false;
-  	  boolean haveTile = false;
-  	  //checks whether tiles are mergable or not
-  	  boolean mrgChk = false;
-  	  //tracks the freespace and savedTile row coordinate
-  	  int freeR = 0;
-  	  int tileR = 0;
-  	  //tracks the freespace and savedTile collumn coordinate
-  	  int freeC = 0;
-  	  int tileC = 0;
-  	  //holds the last tile shifted, to check for merges
-  	  Tile savedT = new TwoNTile(0);
-  	  
-  	  //move vertically through the board starting from the 
-  	  //	TOP LEFT and finishing at the BOTTOM RIGHT
-  	  for(int col = 0; col <= (this.gameBoard[0].length-1); col++)
+  	  LineTask shift = new LineTask(row0, col0, lRow, lCol, dRow, dCol, len, table, 0, lines);
+  	  ForkJoinPool.commonPool().invoke(shift);
+  	  if(!shift.moved)
+  	  	  return 0;
+  	  this.hash ^= shift.hash;
+  	  if(this.changedRows!=null)
+  	  	  for(int w = 0; w<this.changedRows.length; w++)
+  	  	  	  this.changedRows[w] |= shift.rows[w];
+
+  	  CellTask rebuild = new CellTask(0, (this.r*this.c+63)>>>6);
+  	  ForkJoinPool.commonPool().invoke(rebuild);
+  	  this.freeIndex.recount();
+  	  this.free = this.freeIndex.freeCount();
+  	  this.pairs = rebuild.pairs;
+  	  this.shifted = true;
+  	  return shift.score;
+  }
+
+  //Shifts lines lo to hi-1 of a parallel shift
+  private class LineTask extends RecursiveAction
+  {
+  	  private static final long serialVersionUID = 1L;
+  	  private final int row0, col0, lRow, lCol, dRow, dCol, len;
+  	  private final ShiftTable table;
+  	  private final int lo, hi;
+  	  int score;
+  	  boolean moved;
+  	  long hash;			//xor of the keys of the cells changed
+  	  long[] rows;			//rows changed, if the board records them
+
+  	  LineTask(int row0, int col0, int lRow, int lCol, int dRow, int dCol, int len,
+  	  	  	   ShiftTable table, int lo, int hi)
   	  {
-  	  	  for(int row = 0; row<=(this.gameBoard.length-1); row++)
+  	  	  this.row0 = row0;
+  	  	  this.col0 = col0;
+  	  	  this.lRow = lRow;
+  	  	  this.lCol = lCol;
+  	  	  this.dRow = dRow;
+  	  	  this.dCol = dCol;
+  	  	  this.len = len;
+  	  	  this.table = table;
+  	  	  this.lo = lo;
+  	  	  this.hi = hi;
+  	  }
+
+  	  protected void compute()
+  	  {
+  	  	  if((this.hi-this.lo>1)&&((long)(this.hi-this.lo)*this.len>TASK_CELLS))
   	  	  {
-  	  	  	  
-  	  	  	  //saves the first spot as empty coordinates or tile
-  	  	  	  if(firstSpot)
+  	  	  	  int mid = (this.lo+this.hi)>>>1;
+  	  	  	  LineTask left = new LineTask(row0, col0, lRow, lCol, dRow, dCol, len, table, this.lo, mid);
+  	  	  	  LineTask right = new LineTask(row0, col0, lRow, lCol, dRow, dCol, len, table, mid, this.hi);
+  	  	  	  invokeAll(left, right);
+  	  	  	  this.score = left.score + right.score;
+  	  	  	  this.moved = left.moved || right.moved;
+  	  	  	  this.hash = left.hash ^ right.hash;
+  	  	  	  if(changedRows!=null)
   	  	  	  {
-  	  	  	  	  //if the spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  haveFree = true;
-  	  	  	  	  }
-  	  	  	  	  //if the spot has a tile...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  haveTile = true;
-  	  	  	  	  }
-  	  	  	  	  firstSpot = false;	  
+  	  	  	  	  this.rows = left.rows;
+  	  	  	  	  for(int w = 0; w<this.rows.length; w++)
+  	  	  	  	  	  this.rows[w] |= right.rows[w];
   	  	  	  }
-//------------------------------
-  	  	  	  //if this is not the first spot...
-  	  	  	  else
+  	  	  	  return;
+  	  	  }
+  	  	  Tile[] line = new Tile[this.len];
+  	  	  if(changedRows!=null)
+  	  	  	  this.rows = new long[changedRows.length];
+  	  	  for(int x = this.lo; x<this.hi; x++)
+  	  	  {
+  	  	  	  int row = this.row0+x*this.lRow;
+  	  	  	  int col = this.col0+x*this.lCol;
+  	  	  	  long result = shiftedLine(row, col, this.dRow, this.dCol, this.len, this.table, line);
+  	  	  	  if(!ShiftTable.movedOf(result))
+  	  	  	  	  continue;
+  	  	  	  //no other task touches this line, so write it without upkeep
+  	  	  	  for(int k = 0; k<this.len; k++)
   	  	  	  {
-  	  	  	  	  //if this spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
+  	  	  	  	  int i = row+k*this.dRow;
+  	  	  	  	  int j = col+k*this.dCol;
+  	  	  	  	  Tile old = gameBoard[i][j];
+  	  	  	  	  if(old!=line[k])
   	  	  	  	  {
-  	  	  	  	  	  //if there isnt a saved freespace...
-  	  	  	  	  	  if(haveFree==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  	  haveFree = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if a freespace is already saved...
-  	  	  	  	  	  else
-  	  	  	  	  	  	  continue;
+  	  	  	  	  	  gameBoard[i][j] = line[k];
+  	  	  	  	  	  long cell = (long)i*c+j;
+  	  	  	  	  	  this.hash ^= Zobrist.key(cell, old) ^ Zobrist.key(cell, line[k]);
+  	  	  	  	  	  if(this.rows!=null)
+  	  	  	  	  	  	  this.rows[i>>>6] |= 1L<<i;
   	  	  	  	  }
-  	  	  	  	  //if there is a tile in this spot...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  //if a tile hasn't been saved
-  	  	  	  	  	  if(haveTile==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  //this is also not the first spot, 
-  	  	  	  	  	  	  //	so it must be shifted because there's a 
-  	  	  	  	  	  	  //	free space behind it
-  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  tileR = freeR;
-  	  	  	  	  	  	  tileC = freeC;
-  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  this.gameBoard[row][col] = null;  	 
-  	  	  	  	  	  	  //only one free-coordinate is shifted, which 
-  	  	  	  	  	  	  //	would mark the next freespace in that line
-  	  	  	  	  	  	  freeR++;
-  	  	  	  	  	  	  haveTile = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if this is not the first tile
-  	  	  	  	  	  else
-  	  	  	  	  	  {
-  	  	  	  	  	  	  mrgChk = savedT.mergesWith(this.gameBoard[row][col]);
-  	  	  	  	  	  	  //if the tiles can merge
-  	  	  	  	  	  	  if(mrgChk==true)
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  Tile newT = new TwoNTile(0);
-  	  	  	  	  	  	  	  try{
-  	  	  	  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  	  	  	  newT= savedT.merge(this.gameBoard[row][col]);
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  	  	  	  //collects the points earned
-  	  	  	  	  	  	  	  shiftScore += newT.getScore();
-  	  	  	  	  	  	  	  //replaces the static tile with the merged tile
-  	  	  	  	  	  	  	  this.gameBoard[tileR][tileC] = newT;
-  	  	  	  	  	  	  	  //sets the spot of the moved tile to null
-  	  	  	  	  	  	  	  this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  //claims this as the new saved free spot
-  	  	  	  	  	  	  	  freeR = tileR+1;
-  	  	  	  	  	  	  	  freeC = tileC;
-  	  	  	  	  	  	  	  haveFree = true;
-  	  	  	  	  	  	  	  //and claims the new saved tile
-  	  	  	  	  	  	  	  savedT = new TwoNTile(0);
-  	  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  	  this.free++;
-  	  	  	  	  	  	  }
-  	  	  	  	  	  	  //if the tiles can't merge
-  	  	  	  	  	  	  else
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  //if there were only tiles before, 
-  	  	  	  	  	  	  	  //	we can't shift it
-  	  	  	  	  	  	  	  if(haveFree==true)
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  		//shifts the tile over
-  	  	  	  	  	  	  	  		savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  		this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  	  		tileR = freeR;
-  	  	  	  	  	  	  	  		tileC = freeC;
-  	  	  	  	  	  	  	  		this.shifted = true;
-  	  	  	  	  	  	  	  		//frees up spot
-  	  	  	  	  	  	  	  		this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  		//the new freespace coordinate
-  	  	  	  	  	  	  	  		freeR++;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  //else, make this the new saved tile
-  	  	  	  	  	  	  	  else
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  }
-  	  	  	  	  	  }
-  	  	  	  	  //exit tile check
-  	  	  	  	  }
-  	  	  	  //exit not-first-spot check
   	  	  	  }
-  	  	  //exit col for loop
+  	  	  	  this.moved = true;
+  	  	  	  this.score += ShiftTable.scoreOf(result);
   	  	  }
-  	  	  
-  	  	  //reset the booleans for the next line of spots
-  	  	  firstSpot = true;
-  	  	  haveFree = false;
-  	  	  haveTile = false;
   	  }
-  	  return shiftScore;
   }
-  
-//------------------------------------------------------------------------------
-//shifts the tiles down
-  public int shiftDown()
+
+  //Rebuilds the free space bits of words lo to hi-1 of the index after
+  //	a parallel shift and counts the mergeable pairs whose top or left
+  //	tile lies in those cells. Tasks own whole words, so no two write
+  //	the same one.
+  private class CellTask extends RecursiveAction
   {
-  	  this.shifted = false;
-  	  //tracks points scored during shift
-  	  int shiftScore = 0;
-  	  //marks the head spot in the direction the board is shifting
-  	  boolean firstSpot = true;
-  	  //tracks the freespaces
-  	  boolean haveFree = false;
-  	  boolean haveTile = false;
-  	  //checks whether tiles are mergable or not
-  	  boolean mrgChk = false;
-  	  //tracks the freespace and savedTile row coordinate
-  	  int freeR = 0;
-  	  int tileR = 0;
-  	  //tracks the freespace and savedTile collumn coordinate
-  	  int freeC = 0;
-  	  int tileC = 0;
-  	  //holds the last tile shifted, to check for merges
-  	  Tile savedT = new TwoNTile(0);
-  	  
-  	  //move vertically through the board starting from the 
-  	  //	BOTTOM LEFT and finishing at the TOP RIGHT
-  	  for(int col = 0; col <= (this.gameBoard[0].length-1); col++)
+  	  private static final long serialVersionUID = 1L;
+  	  private final int lo, hi;
+  	  int pairs;
+
+  	  CellTask(int lo, int hi)
+  	  {
+  	  	  this.lo = lo;
+  	  	  this.hi = hi;
+  	  }
+
+  	  protected void compute()
   	  {
-  	  	  for(int row = (this.gameBoard.length-1); row >= 0; row--)
+  	  	  if((this.hi-this.lo>1)&&((long)(this.hi-this.lo)*64>TASK_CELLS))
   	  	  {
-  	  	  	  
-  	  	  	  //saves the first spot as empty coordinates or tile
-  	  	  	  if(firstSpot)
+  	  	  	  int mid = (this.lo+this.hi)>>>1;
+  	  	  	  CellTask left = new CellTask(this.lo, mid);
+  	  	  	  CellTask right = new CellTask(mid, this.hi);
+  	  	  	  invokeAll(left, right);
+  	  	  	  this.pairs = left.pairs + right.pairs;
+  	  	  	  return;
+  	  	  }
+  	  	  int end = Math.min(this.hi*64, r*c);
+  	  	  int cell = this.lo*64;
+  	  	  int i = cell/c;
+  	  	  int j = cell%c;
+  	  	  for(; cell<end; cell++)
+  	  	  {
+  	  	  	  Tile t = gameBoard[i][j];
+  	  	  	  freeIndex.setFreeBit(cell, t==null);
+  	  	  	  if(t!=null)
   	  	  	  {
-  	  	  	  	  //if the spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  haveFree = true;
-  	  	  	  	  }
-  	  	  	  	  //if the spot has a tile...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  haveTile = true;
-  	  	  	  	  }
-  	  	  	  	  firstSpot = false;	  
+  	  	  	  	  if(j+1<c)
+  	  	  	  	  	  this.pairs += pairOf(t, gameBoard[i][j+1]);
+  	  	  	  	  if(i+1<r)
+  	  	  	  	  	  this.pairs += pairOf(t, gameBoard[i+1][j]);
   	  	  	  }
-//------------------------------
-  	  	  	  //if this is not the first spot...
-  	  	  	  else
+  	  	  	  if(++j==c)
   	  	  	  {
-  	  	  	  	  //if this spot is empty...
-  	  	  	  	  if(this.gameBoard[row][col]==null)
-  	  	  	  	  {
-  	  	  	  	  	  //if there isnt a saved freespace...
-  	  	  	  	  	  if(haveFree==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  freeR = row;
-  	  	  	  	  	  	  freeC = col;
-  	  	  	  	  	  	  haveFree = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if a freespace is already saved...
-  	  	  	  	  	  else
-  	  	  	  	  	  	  continue;
-  	  	  	  	  }
-  	  	  	  	  //if there is a tile in this spot...
-  	  	  	  	  else
-  	  	  	  	  {
-  	  	  	  	  	  //if a tile hasn't been saved
-  	  	  	  	  	  if(haveTile==false)
-  	  	  	  	  	  {
-  	  	  	  	  	  	  //this is also not the first spot, 
-  	  	  	  	  	  	  //	so it must be shifted because there's a 
-  	  	  	  	  	  	  //	free space behind it
-  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  tileR = freeR;
-  	  	  	  	  	  	  tileC = freeC;
-  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  this.gameBoard[row][col] = null;  	 
-  	  	  	  	  	  	  //only one free-coordinate is shifted, which 
-  	  	  	  	  	  	  //	would mark the next freespace in that line
-  	  	  	  	  	  	  freeR--;
-  	  	  	  	  	  	  haveTile = true;  	  	  	  	  	  	  
-  	  	  	  	  	  }
-  	  	  	  	  	  //if this is not the first tile
-  	  	  	  	  	  else
-  	  	  	  	  	  {
-  	  	  	  	  	  	  mrgChk = savedT.mergesWith(this.gameBoard[row][col]);
-  	  	  	  	  	  	  //if the tiles can merge
-  	  	  	  	  	  	  if(mrgChk==true)
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  Tile newT = new TwoNTile(0);
-  	  	  	  	  	  	  	  try{
-  	  	  	  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  	  	  	  newT= savedT.merge(this.gameBoard[row][col]);
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  	  	  	  //collects the points earned
-  	  	  	  	  	  	  	  shiftScore += newT.getScore();
-  	  	  	  	  	  	  	  //replaces the static tile with the merged tile
-  	  	  	  	  	  	  	  this.gameBoard[tileR][tileC] = newT;
-  	  	  	  	  	  	  	  //sets the spot of the moved tile to null
-  	  	  	  	  	  	  	  this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  //claims this as the new saved free spot
-  	  	  	  	  	  	  	  freeR = tileR-1;
-  	  	  	  	  	  	  	  freeC = tileC;
-  	  	  	  	  	  	  	  haveFree = true;
-  	  	  	  	  	  	  	  //and claims the new saved tile
-  	  	  	  	  	  	  	  savedT = new TwoNTile(0);
-  	  	  	  	  	  	  	  this.shifted = true;
-  	  	  	  	  	  	  	  this.free++;
-  	  	  	  	  	  	  }
-  	  	  	  	  	  	  //if the tiles can't merge
-  	  	  	  	  	  	  else
-  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  //if there were only tiles before, 
-  	  	  	  	  	  	  	  //	we can't shift it
-  	  	  	  	  	  	  	  if(haveFree==true)
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  		//shifts the tile over
-  	  	  	  	  	  	  	  		savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  		this.gameBoard[freeR][freeC] = savedT;
-  	  	  	  	  	  	  	  		tileR = freeR;
-  	  	  	  	  	  	  	  		tileC = freeC;
-  	  	  	  	  	  	  	  		this.shifted = true;
-  	  	  	  	  	  	  	  		//frees up spot
-  	  	  	  	  	  	  	  		this.gameBoard[row][col] = null;
-  	  	  	  	  	  	  	  		//the new freespace coordinate
-  	  	  	  	  	  	  	  		freeR--;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  	  //else, make this the new saved tile
-  	  	  	  	  	  	  	  else
-  	  	  	  	  	  	  	  {
-  	  	  	  	  	  	  	  	  savedT = this.gameBoard[row][col];
-  	  	  	  	  	  	  	  	  tileR = row;
-  	  	  	  	  	  	  	  	  tileC = col;
-  	  	  	  	  	  	  	  }
-  	  	  	  	  	  	  }
-  	  	  	  	  	  }
-  	  	  	  	  //exit tile check
-  	  	  	  	  }
-  	  	  	  //exit not-first-spot check
+  	  	  	  	  j = 0;
+  	  	  	  	  i++;
   	  	  	  }
-  	  	  //exit col for loop
   	  	  }
-  	  	  
-  	  	  //reset the booleans for the next line of spots
-  	  	  firstSpot = true;
-  	  	  haveFree = false;
-  	  	  haveTile = false;
   	  }
-  	  return shiftScore;
   }
 
 }
+
@@ -0,0 +1,26 @@
+// The four directions the tiles of a game can be shifted in.
+public enum Direction {
+  LEFT, RIGHT, UP, DOWN;
+
+  // Shift the tiles of the board in this direction and return the
+  // score generated by the shift
+  public int shift(Board board){
+    switch(this){
+      case LEFT:  return board.shiftLeft();
+      case RIGHT: return board.shiftRight();
+      case UP:    return board.shiftUp();
+      default:    return board.shiftDown();
+    }
+  }
+
+  // Shift the tiles of the game in this direction, updating its score
+  public void shift(Game2048 game){
+    switch(this){
+      case LEFT:  game.shiftLeft();  break;
+      case RIGHT: game.shiftRight(); break;
+      case UP:    game.shiftUp();    break;
+      default:    game.shiftDown();  break;
+    }
+  }
+
+}
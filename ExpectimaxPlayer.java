@@ -0,0 +1,263 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Automated player which picks moves by depth-limited expectimax
+// search. Player nodes take the best of the four shifts; chance nodes
+// average over every free space and the spawn distribution used by
+// Game2048.getRandomTile(). Only the abstract Board API is used so any
+// Board works, and bricks are respected by the boards' own shifts.
+//
+// Search is iterative deepening from depth 1 up to the maximum depth,
+// stopping early when the time budget runs out; the move from the
+// deepest completed iteration is played. Values of positions after a
+// move are kept in a transposition table keyed by board hash so that
+// positions reached by different move orders are searched once.
+public class ExpectimaxPlayer {
+
+  // Spawn distribution of Game2048.getRandomTile()
+  static final int[] SPAWN_VALUES = {2, 4, 8};
+  static final double[] SPAWN_ODDS = {0.70, 0.25, 0.05};
+
+  // Weight of each free space when evaluating a leaf position
+  static final double FREE_SPACE_WEIGHT = 64.0;
+
+  // The table is cleared when it grows past this many positions
+  static final int MAX_TABLE_SIZE = 1 << 20;
+
+  // A searched position: its value and the depth it was searched to
+  static class Entry {
+    final double value;
+    final int depth;
+    Entry(double value, int depth){
+      this.value = value;
+      this.depth = depth;
+    }
+  }
+
+  // Thrown to unwind a search whose time budget has run out
+  static class OutOfTime extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    OutOfTime(){
+      super(null, null, false, false);
+    }
+  }
+
+  protected final int maxDepth;
+  protected final long budgetNanos;
+  protected final Map<Long,Entry> table;
+
+  protected long deadline;       // System.nanoTime() to give up at
+  protected long nodes;          // nodes searched by the last bestMove()
+  protected long tableHits;      // transposition table hits, last bestMove()
+  protected long elapsedNanos;   // time taken by the last bestMove()
+  protected int completedDepth;  // deepest finished iteration, last bestMove()
+  private long totalNodes;
+  private long totalNanos;
+
+  // Create a player searching up to maxDepth moves ahead with no time
+  // limit
+  public ExpectimaxPlayer(int maxDepth){
+    this(maxDepth, 0);
+  }
+
+  // Create a player searching up to maxDepth moves ahead, giving up on
+  // deeper iterations after budgetMillis milliseconds. A budget of 0
+  // means no time limit.
+  public ExpectimaxPlayer(int maxDepth, long budgetMillis){
+    this(maxDepth, budgetMillis, new HashMap<Long,Entry>());
+  }
+
+  protected ExpectimaxPlayer(int maxDepth, long budgetMillis, Map<Long,Entry> table){
+    if(maxDepth < 1){
+      throw new RuntimeException("Search depth must be at least 1, not "+maxDepth);
+    }
+    this.maxDepth = maxDepth;
+    this.budgetNanos = budgetMillis * 1000000L;
+    this.table = table;
+  }
+
+  // Return the best direction to shift the game in, or null if no
+  // shift would move any tile
+  public Direction bestMove(Game2048 game){
+    return bestMove(game.copyBoard());
+  }
+
+  // Return the best direction to shift the board in, or null if no
+  // shift would move any tile. The board is not changed.
+  public Direction bestMove(Board board){
+    long start = System.nanoTime();
+    this.deadline = this.budgetNanos > 0 ? start + this.budgetNanos : Long.MAX_VALUE;
+    this.nodes = 0;
+    this.tableHits = 0;
+    this.completedDepth = 0;
+    if(this.table.size() > MAX_TABLE_SIZE){
+      this.table.clear();
+    }
+
+    Direction best = null;
+    try{
+      for(int depth=1; depth<=this.maxDepth; depth++){
+        Direction found = searchRoot(board, depth);
+        if(found == null){
+          break;                // nothing moves at any depth
+        }
+        best = found;
+        this.completedDepth = depth;
+      }
+    }
+    catch(OutOfTime e){
+      // keep the move from the deepest completed iteration
+    }
+    if(best == null && this.completedDepth == 0){
+      best = anyMove(board);    // out of time before depth 1 finished
+    }
+
+    this.elapsedNanos = System.nanoTime() - start;
+    this.totalNodes += this.nodes;
+    this.totalNanos += this.elapsedNanos;
+    return best;
+  }
+
+  // Search each move from the root to the given depth and return the
+  // best one, or null if none moves
+  protected Direction searchRoot(Board board, int depth){
+    Direction best = null;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for(Direction d : Direction.values()){
+      Board child = board.copy();
+      int score = d.shift(child);
+      if(!child.lastShiftMovedTiles()){
+        continue;
+      }
+      double value = score + chanceNode(child, depth);
+      if(value > bestValue){
+        bestValue = value;
+        best = d;
+      }
+    }
+    return best;
+  }
+
+  // Value of the board when it is the player's turn with depth moves
+  // left to search
+  protected double playerNode(Board board, int depth){
+    countNode();
+    if(depth == 0){
+      return evaluate(board);
+    }
+    double best = Double.NEGATIVE_INFINITY;
+    for(Direction d : Direction.values()){
+      Board child = board.copy();
+      int score = d.shift(child);
+      if(child.lastShiftMovedTiles()){
+        best = Math.max(best, score + chanceNode(child, depth));
+      }
+    }
+    // no move left: the game is over here
+    return best == Double.NEGATIVE_INFINITY ? evaluate(board) : best;
+  }
+
+  // Value of the board after the player's move, averaged over every
+  // tile the game could spawn next. depth counts the move just made.
+  protected double chanceNode(Board board, int depth){
+    countNode();
+    long key = hash(board);
+    Entry entry = this.table.get(key);
+    if(entry != null && entry.depth >= depth){
+      this.tableHits++;
+      return entry.value;
+    }
+    int free = board.getFreeSpaceCount();
+    double value;
+    if(free == 0){
+      value = playerNode(board, depth-1);
+    }
+    else{
+      double sum = 0.0;
+      for(int i=0; i<free; i++){
+        for(int s=0; s<SPAWN_VALUES.length; s++){
+          Board child = board.copy();
+          child.addTileAtFreeSpace(i, TwoNTile.valueOf(SPAWN_VALUES[s]));
+          sum += SPAWN_ODDS[s] * playerNode(child, depth-1);
+        }
+      }
+      value = sum / free;
+    }
+    this.table.put(key, new Entry(value, depth));
+    return value;
+  }
+
+  // Value of the board with depth moves left, searched on the calling
+  // thread as one piece of a larger search that gives up at deadline.
+  // Counters are reset so the caller can collect them afterwards.
+  double searchPlayerNode(Board board, int depth, long deadline){
+    this.deadline = deadline;
+    this.nodes = 0;
+    this.tableHits = 0;
+    return playerNode(board, depth);
+  }
+
+  // Heuristic value of a position at the search horizon
+  protected double evaluate(Board board){
+    return FREE_SPACE_WEIGHT * board.getFreeSpaceCount();
+  }
+
+  // Count a searched node, checking the clock every so often
+  protected void countNode(){
+    this.nodes++;
+    if((this.nodes & 0xFF) == 0 && System.nanoTime() > this.deadline){
+      throw new OutOfTime();
+    }
+  }
+
+  // Hash of the board's dimensions and tiles; the tiles' part is the
+  // board's own Zobrist hash, so no cell is visited
+  protected static long hash(Board board){
+    return board.zobristHash() ^ Zobrist.mix((long) board.getRows() << 32 | board.getCols());
+  }
+
+  // Return the first direction which moves any tile, or null
+  private static Direction anyMove(Board board){
+    MovePreview preview = board.previewMoves();
+    for(Direction d : Direction.values()){
+      if(preview.moves(d)){
+        return d;
+      }
+    }
+    return null;
+  }
+
+  // Nodes searched by the last call to bestMove()
+  public long getNodes(){
+    return this.nodes;
+  }
+
+  // Transposition table hits during the last call to bestMove()
+  public long getTableHits(){
+    return this.tableHits;
+  }
+
+  // Deepest search finished by the last call to bestMove()
+  public int getCompletedDepth(){
+    return this.completedDepth;
+  }
+
+  // Nanoseconds taken by the last call to bestMove()
+  public long getElapsedNanos(){
+    return this.elapsedNanos;
+  }
+
+  // Nodes searched per second over every call to bestMove()
+  public double getNodesPerSecond(){
+    return this.totalNanos == 0 ? 0.0 : this.totalNodes * 1e9 / this.totalNanos;
+  }
+
+  // Summary of the last search
+  public String toString(){
+    return String.format("depth %d, %d nodes, %d table hits, %.2f ms, %.0f nodes/sec",
+                         this.completedDepth, this.nodes, this.tableHits,
+                         this.elapsedNanos / 1e6, getNodesPerSecond());
+  }
+
+}
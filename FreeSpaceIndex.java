@@ -0,0 +1,159 @@
+// Rank/select index over the free cells of a board. Cells are numbered
+// row by row (cell = row*cols + col), the same order in which
+// addTileAtFreeSpace() numbers free spaces, and finding the k-th free
+// cell takes O(log N) instead of a scan of the board.
+//
+// Free cells are the set bits of a packed bitmap, 64 cells per word. A
+// Fenwick tree over the number of free cells in each word gives the
+// word holding the k-th free cell; the cell within that word is found
+// with popcounts.
+public class FreeSpaceIndex {
+
+  private final int cells;
+  private final long[] bits;     // bit (cell & 63) of bits[cell >> 6] set if free
+  private final int[] tree;      // Fenwick tree of free counts per word, 1-based
+  private final int topStep;     // highest power of two <= bits.length
+  private int free;
+
+  // Index over the given number of cells, all free
+  public FreeSpaceIndex(int cells){
+    this.cells = cells;
+    this.bits = new long[(cells + 63) >>> 6];
+    this.tree = new int[this.bits.length + 1];
+    this.topStep = this.bits.length == 0 ? 0 : Integer.highestOneBit(this.bits.length);
+    for(int w=0; w<this.bits.length; w++){
+      this.bits[w] = -1L;
+    }
+    if((cells & 63) != 0){
+      this.bits[this.bits.length-1] = (1L << (cells & 63)) - 1;
+    }
+    recount();
+  }
+
+  private FreeSpaceIndex(FreeSpaceIndex other){
+    this.cells = other.cells;
+    this.bits = other.bits.clone();
+    this.tree = other.tree.clone();
+    this.topStep = other.topStep;
+    this.free = other.free;
+  }
+
+  // A distinct copy of this index
+  public FreeSpaceIndex copy(){
+    return new FreeSpaceIndex(this);
+  }
+
+  // Number of free cells
+  public int freeCount(){
+    return this.free;
+  }
+
+  // true if the cell is free
+  public boolean isFree(int cell){
+    return (this.bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // Record that a tile now occupies the cell
+  public void markFilled(int cell){
+    long bit = 1L << cell;
+    int w = cell >>> 6;
+    if((this.bits[w] & bit) != 0){
+      this.bits[w] &= ~bit;
+      this.free--;
+      add(w, -1);
+    }
+  }
+
+  // Record that the cell is now empty
+  public void markFree(int cell){
+    long bit = 1L << cell;
+    int w = cell >>> 6;
+    if((this.bits[w] & bit) == 0){
+      this.bits[w] |= bit;
+      this.free++;
+      add(w, 1);
+    }
+  }
+
+  // Set the cell's bit without updating the counts. Callers writing
+  // many cells at once use this and then call recount() once.
+  public void setFreeBit(int cell, boolean isFree){
+    if(isFree){
+      this.bits[cell >>> 6] |= 1L << cell;
+    }
+    else{
+      this.bits[cell >>> 6] &= ~(1L << cell);
+    }
+  }
+
+  // Rebuild the free count and the Fenwick tree from the bitmap in
+  // O(N/64)
+  public void recount(){
+    this.free = 0;
+    for(int w=0; w<this.bits.length; w++){
+      int count = Long.bitCount(this.bits[w]);
+      this.free += count;
+      this.tree[w+1] = count;
+    }
+    for(int i=1; i<this.tree.length; i++){
+      int parent = i + (i & -i);
+      if(parent < this.tree.length){
+        this.tree[parent] += this.tree[i];
+      }
+    }
+  }
+
+  // The k-th free cell, counting from 0 in row-major order
+  public int select(int k){
+    if(k < 0 || k >= this.free){
+      throw new RuntimeException(String.format("Free space %d doesn't exist; %d free",k,this.free));
+    }
+    // descend the Fenwick tree to the last word whose prefix holds <= k
+    int w = 0;
+    for(int step=this.topStep; step>0; step>>>=1){
+      int next = w + step;
+      if(next < this.tree.length && this.tree[next] <= k){
+        w = next;
+        k -= this.tree[next];
+      }
+    }
+    // the k-th set bit of that word, halving the window each step
+    long word = this.bits[w];
+    int base = 0;
+    for(int half=32; half>0; half>>>=1){
+      long low = word & ((1L << half) - 1);
+      int count = Long.bitCount(low);
+      if(k >= count){
+        k -= count;
+        word >>>= half;
+        base += half;
+      }
+      else{
+        word = low;
+      }
+    }
+    return (w << 6) + base;
+  }
+
+  // Number of free cells before the given cell
+  public int rank(int cell){
+    int w = cell >>> 6;
+    int count = 0;
+    for(int i=w; i>0; i -= i & -i){
+      count += this.tree[i];
+    }
+    return count + Long.bitCount(this.bits[w] & ((1L << cell) - 1));
+  }
+
+  // Rough heap footprint in bytes
+  public long estimatedBytes(){
+    return 32 + Board.arrayBytes(this.bits.length, 8) + Board.arrayBytes(this.tree.length, 4);
+  }
+
+  private void add(int w, int delta){
+    for(int i=w+1; i<this.tree.length; i += i & -i){
+      this.tree[i] += delta;
+    }
+  }
+
+}
@@ -1,4 +1,7 @@
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
 
 // Represents the internal state of a game of 2048 and allows various
 // operations of game moves as methods. Uses TwoNTiles and DenseBoard
@@ -6,8 +9,19 @@ import java.util.Random;
 public class Game2048{
 
   private Board board;
+  private String boardStyle;
   private int score;
-  private Random random;
+  private GameRandom random;
+  private BoardMetrics metrics; // where board calls are recorded, or null
+
+  // Snapshots of the game before each move for undo, and of the game
+  // before each undo for redo; most recent last
+  private ArrayDeque<GameSnapshot> undoHistory = new ArrayDeque<GameSnapshot>();
+  private ArrayDeque<GameSnapshot> redoHistory = new ArrayDeque<GameSnapshot>();
+  private int undoLimit = 0;    // moves which can be undone; 0 keeps no history
+  // The board and score as they stand, if known while undo is on; null
+  // once something changes them without taking a new one
+  private GameSnapshot current;
 
   // Create a game with a DenseBoard with the given number of rows and
   // columns. Initialize the game's internal random number generator
@@ -30,12 +44,7 @@ public class Game2048{
   // columns. Initialize the game's internal random number generator
   // to the given seed.
   public Game2048(int rows, int cols, int seed, boolean useSparse) {
-  	  if(useSparse)
-  	  	  this.board = new SparseBoard(rows, cols);
-  	  else
-  	  	  this.board = new DenseBoard(rows, cols);
-  	  this.random = new Random(seed);
-  	  
+  	  this(rows, cols, seed, useSparse ? "sparse" : "dense");
   }
 
   // REQUIRED: The final parameter indicates whether a SparseBoard
@@ -45,11 +54,105 @@ public class Game2048{
   // of tiles. Initialize the game's internal random number generator
   // to the given seed.
   public Game2048(Tile tiles[][], int seed, boolean useSparse) {
-  	  if(useSparse)
-  	  	  this.board = new SparseBoard(tiles);
-  	  else
-  	  	  this.board = new DenseBoard(tiles);
-  	  this.random = new Random(seed);
+  	  this(tiles, seed, useSparse ? "sparse" : "dense");
+  }
+
+  // Create a game with the given number of rows and columns on the
+  // board named by boardStyle: "sparse", "dense" or "bit" (BitBoard,
+  // 4x4 only). Initialize the game's internal random number generator
+  // to the given seed.
+  public Game2048(int rows, int cols, int seed, String boardStyle) {
+  	  this.board = makeBoard(rows, cols, boardStyle);
+  	  this.boardStyle = boardStyle;
+  	  this.random = new GameRandom(seed);
+  }
+
+  // Create a game on the board named by boardStyle which has the given
+  // arrangement of tiles. Initialize the game's internal random number
+  // generator to the given seed.
+  public Game2048(Tile tiles[][], int seed, String boardStyle) {
+  	  this.board = makeBoard(tiles, boardStyle);
+  	  this.boardStyle = boardStyle;
+  	  this.random = new GameRandom(seed);
+  }
+
+  // Continue a game from a snapshot of it, on a board of the given
+  // style. Its random number generator carries on where the snapshot's
+  // left off.
+  public Game2048(GameSnapshot snap, String boardStyle) {
+  	  this.board = snap.toBoard(boardStyle);
+  	  this.boardStyle = boardStyle;
+  	  this.score = snap.getScore();
+  	  this.random = new GameRandom(0);
+  	  this.random.setState(snap.getRandomState());
+  }
+
+  private Game2048(Board board, String boardStyle, int score, long randomState) {
+  	  this.board = board;
+  	  this.boardStyle = boardStyle;
+  	  this.score = score;
+  	  this.random = new GameRandom(0);
+  	  this.random.setState(randomState);
+  }
+
+  // Write the board, its style, the score and the random number
+  // generator's state to out in BoardCodec's binary form. Undo history
+  // is not written.
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeByte(Replay.styleCode(this.boardStyle));
+    out.writeInt(this.score);
+    out.writeLong(this.random.getState());
+    BoardCodec.writeBoard(out, this.board);
+  }
+
+  // Read a game written by writeTo(), on a board of the style it had
+  public static Game2048 readFrom(DataInput in) throws IOException {
+    return readFrom(in, null);
+  }
+
+  // Read a game written by writeTo() onto a board of the given style,
+  // or of the style it had if boardStyle is null
+  public static Game2048 readFrom(DataInput in, String boardStyle) throws IOException {
+    int style = in.readUnsignedByte();
+    if(style >= Replay.STYLES.length){
+      throw new RuntimeException("Unknown board style code "+style);
+    }
+    if(boardStyle == null){
+      boardStyle = Replay.STYLES[style];
+    }
+    int score = in.readInt();
+    long randomState = in.readLong();
+    Board board = BoardCodec.readBoard(in, boardStyle);
+    return new Game2048(board, boardStyle, score, randomState);
+  }
+
+  // Throw the exception makeBoard() would for a board of the given
+  // size and style, without building one
+  public static void checkBoardStyle(int rows, int cols, String boardStyle){
+    Replay.styleCode(boardStyle);
+    if(boardStyle.equals("bit") && (rows != BitBoard.SIZE || cols != BitBoard.SIZE)){
+      String msg = String.format("BitBoard must be %dx%d, not %dx%d",
+                                 BitBoard.SIZE,BitBoard.SIZE,rows,cols);
+      throw new RuntimeException(msg);
+    }
+  }
+
+  // Build an empty board of the given style
+  public static Board makeBoard(int rows, int cols, String boardStyle){
+    if(boardStyle.equals("sparse")){ return new SparseBoard(rows, cols); }
+    if(boardStyle.equals("dense")){ return new DenseBoard(rows, cols); }
+    if(boardStyle.equals("bit")){ return new BitBoard(rows, cols); }
+    if(boardStyle.equals("byte")){ return new ByteBoard(rows, cols); }
+    throw new RuntimeException(String.format("Unknown board style '%s'",boardStyle));
+  }
+
+  // Build a board of the given style holding the given tiles
+  public static Board makeBoard(Tile tiles[][], String boardStyle){
+    if(boardStyle.equals("sparse")){ return new SparseBoard(tiles); }
+    if(boardStyle.equals("dense")){ return new DenseBoard(tiles); }
+    if(boardStyle.equals("bit")){ return new BitBoard(tiles); }
+    if(boardStyle.equals("byte")){ return new ByteBoard(tiles); }
+    throw new RuntimeException(String.format("Unknown board style '%s'",boardStyle));
   }
 
   // Return the number of rows in the Game
@@ -73,6 +176,54 @@ public class Game2048{
     return board.toString();
   }
 
+  // Record every call the game makes on its board, and on copies of it
+  // such as automated players search, into metrics; null stops
+  // recording. Several games may share one BoardMetrics.
+  public void setMetrics(BoardMetrics metrics){
+    if(this.board instanceof InstrumentedBoard){
+      this.board = ((InstrumentedBoard) this.board).getBoard();
+    }
+    this.metrics = metrics;
+    this.board = instrument(this.board);
+  }
+
+  // Where board calls are being recorded, or null
+  public BoardMetrics getMetrics(){
+    return this.metrics;
+  }
+
+  // The recorded board calls as a table, or a note that none are
+  public String metricsReport(){
+    if(this.metrics == null){
+      return "Board metrics are off\n";
+    }
+    return this.metrics.report();
+  }
+
+  private Board instrument(Board board){
+    return this.metrics == null ? board : new InstrumentedBoard(board, this.metrics);
+  }
+
+  // Rough heap footprint of the game in bytes: its board and a little
+  // for the game itself. Undo history, whose rows are shared, is not
+  // counted.
+  public long estimatedBytes(){
+    return 96 + board.estimatedBytes();
+  }
+
+  // Return a distinct copy of the game's board. Automated players use
+  // this to search ahead without disturbing the game.
+  public Board copyBoard(){
+    return board.copy();
+  }
+
+  // What shifting in each direction would score and whether it would
+  // move any tile, without changing the game. Useful for hints and for
+  // automated players which only look one move ahead.
+  public MovePreview previewMoves(){
+    return board.previewMoves();
+  }
+
   // Return the tile at a given position in the grid; throws an
   // exception if the request is out of bounds. Potentially useful for
   // more complex UIs which want to lay out tiles individually.
@@ -80,21 +231,68 @@ public class Game2048{
     return board.tileAt(i,j);
   }
 
-  // Shift tiles left and update the score
+  // Shift tiles left and update the score. When undo is on, a shift
+  // which moves tiles can be undone like a move.
   public void shiftLeft(){
-    this.score += board.shiftLeft();
+    shiftRecorded(Direction.LEFT);
   }
   // Shift tiles right and update the score
   public void shiftRight(){
-    this.score += board.shiftRight();
+    shiftRecorded(Direction.RIGHT);
   }
   // Shift tiles up and update the score
   public void shiftUp(){
-    this.score += board.shiftUp();
+    shiftRecorded(Direction.UP);
   }
   // Shift tiles down and update the score
   public void shiftDown(){
-    this.score += board.shiftDown();
+    shiftRecorded(Direction.DOWN);
+  }
+
+  // Shift the board and, when undo is on and tiles moved, keep the game
+  // as it was before the shift for undo(). Returns true if tiles moved.
+  private boolean shiftRecorded(Direction d){
+    GameSnapshot before = null;
+    if(this.undoLimit > 0){
+      before = currentSnapshot(this.undoHistory.peekLast());
+      this.board.clearChangedRows();          // the board now matches before
+    }
+    shift(d);
+    if(!lastShiftMovedTiles()){
+      return false;
+    }
+    if(before != null){
+      this.current = null;
+      this.undoHistory.addLast(before);
+      if(this.undoHistory.size() > this.undoLimit){
+        this.undoHistory.removeFirst();
+      }
+      this.redoHistory.clear();
+    }
+    return true;
+  }
+
+  // Shift the board, update the score and report the shift to a flight
+  // recording if one wants it
+  private void shift(Direction d){
+    GameEvents.Shift event = new GameEvents.Shift();
+    int freeBefore = event.isEnabled() ? this.board.getFreeSpaceCount() : -1;
+    event.begin();
+    int gained = d.shift(this.board);
+    this.score += gained;
+    event.end();
+    if(event.shouldCommit()){
+      event.rows = getRows();
+      event.cols = getCols();
+      event.boardType = this.boardStyle;
+      event.direction = d.name();
+      event.moved = this.board.lastShiftMovedTiles();
+      if(freeBefore >= 0){
+        event.merges = this.board.getFreeSpaceCount() - freeBefore;
+      }
+      event.scoreDelta = gained;
+      event.commit();
+    }
   }
 
   // Generate and return a random tile according to the probability
@@ -107,13 +305,13 @@ public class Game2048{
     double rand = this.random.nextDouble();
     //    System.out.printf("\n\nMY DOUBLE IS %f\n",rand);
     if(rand <= 0.70){
-      return new TwoNTile(2);
+      return TwoNTile.valueOf(2);
     }
     else if(rand <= 0.95){
-      return new TwoNTile(4);
+      return TwoNTile.valueOf(4);
     }
     else{
-      return new TwoNTile(8);
+      return TwoNTile.valueOf(8);
     }
   }
 
@@ -136,9 +334,26 @@ public class Game2048{
     if(freeSpaces == 0){
       return;
     }
+    GameEvents.Spawn event = new GameEvents.Spawn();
+    event.begin();
     int location = randomFreeLocation();
     Tile tile = getRandomTile();
     board.addTileAtFreeSpace(location,tile);
+    this.current = null;
+    event.end();
+    if(event.shouldCommit()){
+      commitSpawn(event, tile, freeSpaces);
+    }
+  }
+
+  private void commitSpawn(GameEvents.Spawn event, Tile tile, int freeSpaces){
+    event.rows = getRows();
+    event.cols = getCols();
+    event.boardType = this.boardStyle;
+    event.brick = !tile.isMovable();
+    event.value = tile.getScore();
+    event.freeSpaces = freeSpaces;
+    event.commit();
   }
 
   // REQUIRED: Add a brick at a random location.
@@ -150,19 +365,147 @@ public class Game2048{
     if(freeSpaces == 0){
       return;
     }
+    GameEvents.Spawn event = new GameEvents.Spawn();
+    event.begin();
     int location = randomFreeLocation();
     Tile tile = new Brick();
     board.addTileAtFreeSpace(location,tile);
+    this.current = null;
+    event.end();
+    if(event.shouldCommit()){
+      commitSpawn(event, tile, freeSpaces);
+    }
+  }
+
+  // Set up the game the way PlayText2048 does: add the given number of
+  // random bricks, then random tiles until 25% of the board has tiles
+  // (rounded down, at least one).
+  public void addStartingTiles(int brickCount){
+    for(int i=0; i<brickCount; i++){
+      addRandomBrick();
+    }
+    int initialTiles = getRows()*getCols()/4-brickCount;
+    initialTiles = initialTiles==0 ? 1 : initialTiles;
+    for(int i=0; i<initialTiles; i++){
+      addRandomTile();
+    }
+  }
+
+  // Play one turn: shift the tiles in the given direction and, if any
+  // tile moved, add a random tile. Returns true if any tile moved.
+  // When undo is on, the game as it was before the turn is kept so
+  // undo() can return to it. The game as it stands after the turn is
+  // snapshotted once, rereading only the rows the turn changed, so a
+  // following move which changes nothing costs no more than its shift.
+  public boolean move(Direction direction){
+    if(!shiftRecorded(direction)){
+      return false;
+    }
+    addRandomTile();
+    if(this.undoLimit > 0){
+      // the last undo step is the game just before the shift, so only
+      // the rows the shift and the new tile wrote need reading
+      this.current = GameSnapshot.of(this.board, this.score, this.random.getState(),
+                                     this.undoHistory.peekLast(), this.board.changedRows());
+    }
+    return true;
+  }
+
+  // Keep the game as it was before each of the last limit moves (made
+  // with move() or the shift methods) so they can be undone; 0, the
+  // default, keeps none. Shrinking the limit forgets the oldest moves.
+  // A shift made without move() forgets the game as it stands, since
+  // the caller may add tiles of its own, so the next shift snapshots
+  // the board before it knows whether anything will move.
+  public void setUndoLimit(int limit){
+    if(limit < 0){
+      throw new RuntimeException("Undo limit can't be negative: "+limit);
+    }
+    this.undoLimit = limit;
+    while(this.undoHistory.size() > limit){
+      this.undoHistory.removeFirst();
+    }
+    if(limit == 0){
+      this.redoHistory.clear();
+      this.current = null;
+    }
+  }
+
+  // true if there is a move to undo
+  public boolean canUndo(){
+    return !this.undoHistory.isEmpty();
+  }
+
+  // true if there is an undone move to redo
+  public boolean canRedo(){
+    return !this.redoHistory.isEmpty();
+  }
+
+  // Return the board, score and random number generator to how they
+  // were before the last move. Returns false if there is nothing to
+  // undo. Making the same move again adds the same random tile.
+  public boolean undo(){
+    if(this.undoHistory.isEmpty()){
+      return false;
+    }
+    GameSnapshot target = this.undoHistory.removeLast();
+    this.redoHistory.addLast(currentSnapshot(target));
+    restore(target);
+    return true;
+  }
+
+  // Put back the move the last undo() took away. Returns false if
+  // there is nothing to redo; any new move clears what there was.
+  public boolean redo(){
+    if(this.redoHistory.isEmpty()){
+      return false;
+    }
+    GameSnapshot target = this.redoHistory.removeLast();
+    this.undoHistory.addLast(currentSnapshot(target));
+    restore(target);
+    return true;
+  }
+
+  // The game as it is now, sharing unchanged rows with near, an earlier
+  // snapshot of this game or null
+  public GameSnapshot snapshot(GameSnapshot near){
+    return GameSnapshot.of(this.board, this.score, this.random.getState(), near);
+  }
+
+  // The game as it is now for the history: the snapshot kept since the
+  // last recorded change if there is one, otherwise a new one sharing
+  // rows with near. The random number generator's state is read afresh
+  // as it can change without the board changing.
+  private GameSnapshot currentSnapshot(GameSnapshot near){
+    if(this.current == null){
+      this.current = snapshot(near);
+    }
+    return this.current.withRandomState(this.random.getState());
+  }
+
+  private void restore(GameSnapshot snap){
+    this.board = instrument(snap.toBoard(this.boardStyle));
+    this.score = snap.getScore();
+    this.random.setState(snap.getRandomState());
+    this.current = snap;
   }
 
   // Returns true if the game over conditions are met (no free spaces,
   // no merge possible) and false otherwise
   public boolean isGameOver(){
-    int freeSpace = board.getFreeSpaceCount();
-    if(freeSpace > 0){
-      return false;              // Board not full, can continue playing
+    GameEvents.GameOverCheck event = new GameEvents.GameOverCheck();
+    event.begin();
+    boolean over = board.noMovesLeft();
+    event.end();
+    if(event.shouldCommit()){
+      event.rows = getRows();
+      event.cols = getCols();
+      event.boardType = this.boardStyle;
+      event.freeSpaces = board.getFreeSpaceCount();
+      event.over = over;
+      event.commit();
     }
-    return !board.mergePossible(); // Full board may still be able to merge
+    return over;
   }
 
   // true if the last shift moved any tiles and false otherwise
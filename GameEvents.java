@@ -0,0 +1,70 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for game activity, so a recording can put
+// shifts, spawns and game over checks next to GC and CPU samples. All
+// are off unless a recording turns them on, e.g.
+//
+//   java -XX:StartFlightRecording:filename=games.jfr,+game2048.Shift#enabled=true,\
+//        +game2048.Spawn#enabled=true,+game2048.GameOverCheck#enabled=true ...
+//
+// or with a .jfc settings file naming them. While off, Game2048 makes
+// the event, asks isEnabled() and shouldCommit() and nothing more,
+// which the JIT reduces to almost nothing. A shift event's counts come
+// from what the board keeps anyway: each merge frees one space, so
+// merges are the change in free spaces, and whether any tile moved is
+// lastShiftMovedTiles(). Turning the events on adds no scan of the
+// board to what is being measured.
+public class GameEvents {
+
+  @Name("game2048.Shift")
+  @Label("Shift")
+  @Description("Tiles of a game shifted in one direction")
+  @Category("2048")
+  @Enabled(false)
+  @StackTrace(false)
+  static class Shift extends Event {
+    @Label("Rows") int rows;
+    @Label("Columns") int cols;
+    @Label("Board Type") String boardType;
+    @Label("Direction") String direction;
+    @Label("Moved") boolean moved;
+    @Label("Merges") int merges;
+    @Label("Score Delta") int scoreDelta;
+  }
+
+  @Name("game2048.Spawn")
+  @Label("Spawn")
+  @Description("A random tile or brick added to a game")
+  @Category("2048")
+  @Enabled(false)
+  @StackTrace(false)
+  static class Spawn extends Event {
+    @Label("Rows") int rows;
+    @Label("Columns") int cols;
+    @Label("Board Type") String boardType;
+    @Label("Brick") boolean brick;
+    @Label("Value") int value;
+    @Label("Free Spaces Before") int freeSpaces;
+  }
+
+  @Name("game2048.GameOverCheck")
+  @Label("Game Over Check")
+  @Description("A game checked for having no moves left")
+  @Category("2048")
+  @Enabled(false)
+  @StackTrace(false)
+  static class GameOverCheck extends Event {
+    @Label("Rows") int rows;
+    @Label("Columns") int cols;
+    @Label("Board Type") String boardType;
+    @Label("Free Spaces") int freeSpaces;
+    @Label("Game Over") boolean over;
+  }
+
+}
@@ -0,0 +1,46 @@
+import java.util.Random;
+
+// The game's random number generator. It runs the same linear
+// congruential generator as java.util.Random, so a seed gives exactly
+// the games it always has, but keeps the 48-bit state where the game
+// can read it and put it back. Undo restores it so that replaying a
+// move after an undo adds the same random tile as the first time.
+//
+// Only next() and setSeed() are overridden; nextGaussian() keeps a
+// spare value that getState() does not cover, and the game never uses
+// it.
+public class GameRandom extends Random {
+
+  private static final long serialVersionUID = 1L;
+  private static final long MULTIPLIER = 0x5DEECE66DL;
+  private static final long ADDEND = 0xBL;
+  private static final long MASK = (1L << 48) - 1;
+
+  private long state;           // set by Random's constructor via setSeed()
+
+  // Generator with the same sequence as new Random(seed)
+  public GameRandom(long seed){
+    super(seed);
+  }
+
+  public synchronized void setSeed(long seed){
+    super.setSeed(seed);
+    this.state = (seed ^ MULTIPLIER) & MASK;
+  }
+
+  protected int next(int bits){
+    this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+    return (int) (this.state >>> (48 - bits));
+  }
+
+  // The generator's current state
+  public long getState(){
+    return this.state;
+  }
+
+  // Return the generator to a state from getState()
+  public void setState(long state){
+    this.state = state & MASK;
+  }
+
+}
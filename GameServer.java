@@ -0,0 +1,419 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Hosts many games of 2048 in one JVM behind a small HTTP API on the
+// loopback interface, using the JDK's built-in HTTP server. A session
+// is only a Game2048 in a SessionStore, so idle players cost no thread
+// and, once memory is tight, no heap either; each request runs on a
+// virtual thread where the JDK has them (21+) and on a fixed pool of
+// platform threads otherwise.
+//
+//   POST   /games?rows=4&cols=4&bricks=0&style=dense&seed=N  new game
+//   GET    /games/ID                                          the game
+//   POST   /games/ID/move?dir=left|right|up|down              play a turn
+//   DELETE /games/ID                                          end it
+//   GET    /stats                                             store counters
+//
+// Every reply is a JSON object. A game is reported as its id, seed,
+// score, whether the last request moved a tile, whether the game is
+// over and its board as rows of tile values, 0 for an empty space and
+// -1 for a brick. Errors come back as {"error": "..."}: with a 4xx
+// code when the request itself is wrong, and with 500 when the server
+// fails to serve a good one, for instance when a game can't be read
+// back from disk. Those are also counted in /stats as errors and
+// logged with java.util.logging under the name "GameServer".
+public class GameServer {
+
+  // usage: java GameServer [port] [threads] [memory-mb] [session-dir]
+  //   port: port to listen on, 0 for any free one, default 8048 [int]
+  //   threads: size of the fallback pool when there are no virtual
+  //            threads, default 4 per core [int]
+  //   memory-mb: games kept in memory, default 256 MB [int]
+  //   session-dir: where idle games go beyond that, default a new
+  //                temporary directory [path]
+  public static void main(String args[]) throws IOException {
+    int port = args.length >= 1 ? Integer.parseInt(args[0]) : 8048;
+    int threads = args.length >= 2 ? Integer.parseInt(args[1])
+      : 4 * Runtime.getRuntime().availableProcessors();
+    long budget = (args.length >= 3 ? Long.parseLong(args[2]) : DEFAULT_MEMORY_MB) << 20;
+    File dir = args.length >= 4 ? new File(args[3])
+      : Files.createTempDirectory("games").toFile();
+    GameServer server = new GameServer(port, threads, new SessionStore(budget, dir));
+    server.start();
+    System.out.printf("Serving games at http://localhost:%d/games on %s\n",
+                      server.getPort(), server.usesVirtualThreads() ? "virtual threads" : threads+" threads");
+  }
+
+  public static final int MAX_CELLS = 1 << 20;   // largest board a request may create
+  private static final int BACKLOG = 4096;        // connections waiting to be accepted
+  public static final long DEFAULT_MEMORY_MB = 256;
+  private static final Logger LOG = Logger.getLogger(GameServer.class.getName());
+
+  private final int port;
+  private HttpServer server;          // made by start()
+  private final ExecutorService executor;
+  private final boolean virtualThreads;
+  private final ConcurrentHashMap<Long,Session> sessions = new ConcurrentHashMap<Long,Session>();
+  private final SessionStore store;
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final AtomicLong errors = new AtomicLong();   // requests answered with 500
+
+  // A hosted game, whose Game2048 lives in the store under its id.
+  // Requests for one game are served one at a time by locking its
+  // session; different games never wait on each other.
+  static class Session {
+    final long id;
+    final int seed;
+
+    Session(long id, int seed){
+      this.id = id;
+      this.seed = seed;
+    }
+  }
+
+  // A server for the given loopback port (0 for any free one), not yet
+  // started, keeping up to DEFAULT_MEMORY_MB of games in memory and the
+  // rest in a new temporary directory. threads sizes the pool used when
+  // virtual threads are not available.
+  public GameServer(int port, int threads) throws IOException {
+    this(port, threads, new SessionStore(DEFAULT_MEMORY_MB << 20,
+                                         Files.createTempDirectory("games").toFile()));
+  }
+
+  // A server keeping its games in the given store
+  public GameServer(int port, int threads, SessionStore store) throws IOException {
+    this.store = store;
+    this.port = port;
+    ExecutorService virtual = newVirtualThreadExecutor();
+    this.virtualThreads = virtual != null;
+    this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(threads);
+  }
+
+  // Executors.newVirtualThreadPerTaskExecutor() where this JDK has it,
+  // otherwise null. Found by reflection so the server still builds and
+  // runs on JDKs without virtual threads.
+  static ExecutorService newVirtualThreadExecutor(){
+    try{
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch(ReflectiveOperationException | UnsupportedOperationException e){
+      return null;
+    }
+  }
+
+  // Bind the port and start serving. The JDK's server reads its
+  // settings once, when the JVM makes its first server, so unless they
+  // were given on the command line two are set here first:
+  //   - TCP_NODELAY on, since otherwise every small keep-alive reply
+  //     waits out the client's delayed ACK, about 40 ms a request;
+  //   - up to 100000 idle keep-alive connections instead of 200, which
+  //     thousands of clients polling their games run into.
+  public void start() throws IOException {
+    if(this.server != null){
+      throw new RuntimeException("Server already started");
+    }
+    setDefault("sun.net.httpserver.nodelay", "true");
+    setDefault("sun.net.httpserver.maxIdleConnections", "100000");
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), BACKLOG);
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/games", this::handle);
+    this.server.createContext("/stats", this::handle);
+    this.server.start();
+  }
+
+  private static void setDefault(String property, String value){
+    if(System.getProperty(property) == null){
+      System.setProperty(property, value);
+    }
+  }
+
+  // Stop accepting requests, give those in flight a second to finish
+  // and release the threads
+  public void stop(){
+    if(this.server != null){
+      this.server.stop(1);
+    }
+    this.executor.shutdown();
+  }
+
+  // The port being listened on, once started
+  public int getPort(){
+    if(this.server == null){
+      throw new RuntimeException("Server not started");
+    }
+    return this.server.getAddress().getPort();
+  }
+
+  public boolean usesVirtualThreads(){
+    return this.virtualThreads;
+  }
+
+  // Number of games being hosted
+  public int sessionCount(){
+    return this.sessions.size();
+  }
+
+  // Requests which failed with a 500
+  public long errorCount(){
+    return this.errors.get();
+  }
+
+  public SessionStore getStore(){
+    return this.store;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    int status = 200;
+    String body;
+    try{
+      body = route(exchange);
+    }
+    catch(NotFound e){
+      status = 404;
+      body = error(e.getMessage());
+    }
+    catch(BadRequest e){
+      status = e.status;
+      body = error(e.getMessage());
+    }
+    catch(RuntimeException e){
+      // requests are checked before they reach a game, so anything else
+      // is the server's fault
+      this.errors.incrementAndGet();
+      LOG.log(Level.WARNING, "Failed to serve " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+      status = 500;
+      body = error("Internal error: " + e);
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try(OutputStream out = exchange.getResponseBody()){
+      out.write(bytes);
+    }
+  }
+
+  // Serve one request and return the JSON reply
+  private String route(HttpExchange exchange){
+    String method = exchange.getRequestMethod();
+    String[] parts = exchange.getRequestURI().getPath().split("/");
+    Map<String,String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    // parts[0] is empty; the contexts match any path starting with
+    // /games or /stats, so parts[1] may be something else altogether
+    if(parts.length == 2 && parts[1].equals("stats")){
+      requireMethod(method, "GET");
+      return stats();
+    }
+    if(parts.length < 2 || !parts[1].equals("games")){
+      throw new NotFound("No such resource: " + exchange.getRequestURI().getPath());
+    }
+    if(parts.length == 2){
+      requireMethod(method, "POST");
+      return create(query);
+    }
+    Session session = lookup(parts[2]);
+    if(parts.length == 3){
+      if(method.equals("DELETE")){
+        synchronized(session){
+          this.sessions.remove(session.id);
+          this.store.remove(session.id);
+        }
+        return "{\"deleted\":" + session.id + "}";
+      }
+      requireMethod(method, "GET");
+      synchronized(session){
+        Game2048 game = acquire(session);
+        try{
+          return toJson(session, game, false);
+        }
+        finally{
+          this.store.release(session.id);
+        }
+      }
+    }
+    if(parts.length == 4 && parts[3].equals("move")){
+      requireMethod(method, "POST");
+      Direction d = parseDirection(query.get("dir"));
+      synchronized(session){
+        Game2048 game = acquire(session);
+        try{
+          return toJson(session, game, game.move(d));
+        }
+        finally{
+          this.store.release(session.id);
+        }
+      }
+    }
+    throw new NotFound("No such resource: " + exchange.getRequestURI().getPath());
+  }
+
+  private String create(Map<String,String> query){
+    int rows = intParam(query, "rows", 4);
+    int cols = intParam(query, "cols", 4);
+    int bricks = intParam(query, "bricks", 0);
+    String style = query.getOrDefault("style", "dense");
+    int seed = intParam(query, "seed", ThreadLocalRandom.current().nextInt());
+    if(rows < 1 || cols < 1 || (long) rows * cols > MAX_CELLS){
+      throw new BadRequest(400, String.format("Board size %dx%d must be 1 to %d cells", rows, cols, MAX_CELLS));
+    }
+    if(bricks < 0 || bricks > rows * cols){
+      throw new BadRequest(400, "Brick count "+bricks+" doesn't fit the board");
+    }
+    if(!Arrays.asList(Replay.STYLES).contains(style)){
+      throw new BadRequest(400, "style must be one of "+String.join(", ", Replay.STYLES)+", not "+style);
+    }
+    if(style.equals("bit") && (rows != BitBoard.SIZE || cols != BitBoard.SIZE)){
+      throw new BadRequest(400, String.format("A bit board must be %dx%d", BitBoard.SIZE, BitBoard.SIZE));
+    }
+    Game2048 game = new Game2048(rows, cols, seed, style);
+    game.addStartingTiles(bricks);
+    Session session = new Session(this.nextId.getAndIncrement(), seed);
+    String reply = toJson(session, game, false);
+    this.store.put(session.id, game);
+    this.sessions.put(session.id, session);
+    return reply;
+  }
+
+  // The session's game from the store; the caller holds the session's
+  // lock and releases the game when done
+  private Game2048 acquire(Session session){
+    Game2048 game = this.store.acquire(session.id);
+    if(game == null){
+      throw new NotFound("No game " + session.id);   // deleted meanwhile
+    }
+    return game;
+  }
+
+  private String stats(){
+    SessionStore s = this.store;
+    return String.format("{\"sessions\":%d,\"resident\":%d,\"residentBytes\":%d,\"spilled\":%d,"
+                         + "\"hits\":%d,\"misses\":%d,\"evictions\":%d,\"saveFailures\":%d,\"errors\":%d}",
+                         sessionCount(), s.getResidentCount(), s.getResidentBytes(), s.getSpilledCount(),
+                         s.getHits(), s.getMisses(), s.getEvictions(), s.getSaveFailures(), errorCount());
+  }
+
+  private Session lookup(String id){
+    Session session = null;
+    try{
+      session = this.sessions.get(Long.parseLong(id));
+    }
+    catch(NumberFormatException e){
+      // not an id, so no game
+    }
+    if(session == null){
+      throw new NotFound("No game " + id);
+    }
+    return session;
+  }
+
+  // The session's game as JSON; the caller holds the session's lock
+  static String toJson(Session session, Game2048 game, boolean moved){
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"id\":").append(session.id)
+      .append(",\"seed\":").append(session.seed)
+      .append(",\"score\":").append(game.getScore())
+      .append(",\"moved\":").append(moved)
+      .append(",\"over\":").append(game.isGameOver())
+      .append(",\"board\":[");
+    for(int i=0; i<game.getRows(); i++){
+      sb.append(i == 0 ? "[" : ",[");
+      for(int j=0; j<game.getCols(); j++){
+        Tile t = game.tileAt(i,j);
+        if(j > 0){
+          sb.append(',');
+        }
+        sb.append(t == null ? 0 : (t.isMovable() ? t.getScore() : -1));
+      }
+      sb.append(']');
+    }
+    return sb.append("]}").toString();
+  }
+
+  private static String error(String message){
+    String text = String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"");
+    return "{\"error\":\"" + text + "\"}";
+  }
+
+  private static void requireMethod(String method, String wanted){
+    if(!method.equals(wanted)){
+      throw new BadRequest(405, "Use " + wanted + ", not " + method);
+    }
+  }
+
+  private static Direction parseDirection(String dir){
+    if(dir != null){
+      switch(dir.toLowerCase()){
+        case "l": case "left":  return Direction.LEFT;
+        case "r": case "right": return Direction.RIGHT;
+        case "u": case "up":    return Direction.UP;
+        case "d": case "down":  return Direction.DOWN;
+      }
+    }
+    throw new BadRequest(400, "dir must be left, right, up or down, not " + dir);
+  }
+
+  private static int intParam(Map<String,String> query, String name, int otherwise){
+    String value = query.get(name);
+    if(value == null){
+      return otherwise;
+    }
+    try{
+      return Integer.parseInt(value);
+    }
+    catch(NumberFormatException e){
+      throw new BadRequest(400, name + " must be an integer, not " + value);
+    }
+  }
+
+  static Map<String,String> parseQuery(String raw){
+    Map<String,String> query = new HashMap<String,String>();
+    if(raw == null || raw.isEmpty()){
+      return query;
+    }
+    for(String pair : raw.split("&")){
+      int eq = pair.indexOf('=');
+      String key = eq < 0 ? pair : pair.substring(0, eq);
+      String value = eq < 0 ? "" : pair.substring(eq + 1);
+      query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  static class NotFound extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotFound(String message){
+      super(message);
+    }
+  }
+
+  static class BadRequest extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final int status;
+
+    BadRequest(int status, String message){
+      super(message);
+      this.status = status;
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for GameServer that runs entirely on localhost. Each client
+// creates a game and plays moves in turn left, up, right, down, one
+// request at a time, and the run reports requests per second and the
+// mean and worst latency. Without a port an in-process server is
+// started on a free one.
+public class GameServerLoad {
+
+  // usage: java GameServerLoad [clients] [moves] [size] [port]
+  //   clients: how many games are played at once, default 1000 [int]
+  //   moves: move requests per client, default 100 [int]
+  //   size: rows and columns of each game, default 4 [int]
+  //   port: port of a running GameServer, default start one here [int]
+  public static void main(String args[]) throws Exception {
+    int clients = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+    int moves = args.length >= 2 ? Integer.parseInt(args[1]) : 100;
+    int size = args.length >= 3 ? Integer.parseInt(args[2]) : 4;
+    GameServer local = null;
+    int port;
+    if(args.length >= 4){
+      port = Integer.parseInt(args[3]);
+    }
+    else{
+      local = new GameServer(0, 4 * Runtime.getRuntime().availableProcessors());
+      local.start();
+      port = local.getPort();
+    }
+
+    GameServerLoad load = new GameServerLoad(port);
+    ExecutorService pool = GameServer.newVirtualThreadExecutor();
+    if(pool == null){
+      pool = Executors.newFixedThreadPool(Math.min(clients, 256));
+    }
+    long start = System.nanoTime();
+    List<Future<?>> runs = new ArrayList<Future<?>>();
+    for(int c=0; c<clients; c++){
+      final int seed = c;
+      runs.add(pool.submit(() -> { load.play(seed, moves, size); return null; }));
+    }
+    for(Future<?> run : runs){
+      run.get();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    pool.shutdown();
+
+    long requests = load.requests.get();
+    System.out.printf("%d clients, %d moves each on %dx%d games%s\n", clients, moves, size, size,
+                      local == null ? "" : (local.usesVirtualThreads() ? ", virtual threads" : ", thread pool"));
+    System.out.printf("%d requests in %.2f s: %.0f requests/sec, latency mean %.3f ms, max %.3f ms\n",
+                      requests, seconds, requests / seconds,
+                      load.nanos.get() / 1e6 / requests, load.maxNanos.get() / 1e6);
+    if(local != null){
+      local.stop();
+    }
+  }
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final String base;
+  final AtomicLong requests = new AtomicLong();
+  final AtomicLong nanos = new AtomicLong();
+  final AtomicLong maxNanos = new AtomicLong();
+
+  public GameServerLoad(int port){
+    this.base = "http://localhost:" + port + "/games";
+  }
+
+  // Create a game and play moves on it
+  void play(int seed, int moves, int size) throws Exception {
+    String game = post(this.base + "?rows=" + size + "&cols=" + size + "&seed=" + seed);
+    int comma = game.indexOf(',');
+    String id = game.substring("{\"id\":".length(), comma);
+    String[] dirs = {"left", "up", "right", "down"};
+    for(int k=0; k<moves; k++){
+      post(this.base + "/" + id + "/move?dir=" + dirs[k % 4]);
+    }
+    send(HttpRequest.newBuilder(URI.create(this.base + "/" + id)).DELETE().build());
+  }
+
+  private String post(String url) throws Exception {
+    return send(HttpRequest.newBuilder(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+  }
+
+  private String send(HttpRequest request) throws Exception {
+    long start = System.nanoTime();
+    HttpResponse<String> response = this.client.send(request, HttpResponse.BodyHandlers.ofString());
+    long took = System.nanoTime() - start;
+    this.requests.incrementAndGet();
+    this.nanos.addAndGet(took);
+    this.maxNanos.accumulateAndGet(took, Math::max);
+    if(response.statusCode() != 200){
+      throw new RuntimeException(request.uri() + " failed: " + response.body());
+    }
+    return response.body();
+  }
+
+}
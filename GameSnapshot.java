@@ -0,0 +1,109 @@
+// An immutable record of a game at one moment: its tiles, score and
+// random number generator state. Game2048 keeps these for undo and
+// redo.
+//
+// Tiles are kept as one array per row and a row array is never changed
+// once made, so a snapshot taken next to an earlier one reuses every
+// row the board has not changed since. A move that only touches a few
+// rows of a large board costs a few rows of memory, not a whole board.
+public class GameSnapshot {
+
+  private final Tile[][] rows;
+  private final int score;
+  private final long randomState;
+
+  private GameSnapshot(Tile[][] rows, int score, long randomState){
+    this.rows = rows;
+    this.score = score;
+    this.randomState = randomState;
+  }
+
+  // Snapshot the board, sharing any row which holds the same tiles as
+  // in near, an earlier snapshot of the same game (null for none)
+  public static GameSnapshot of(Board board, int score, long randomState, GameSnapshot near){
+    return of(board, score, randomState, near, null);
+  }
+
+  // Snapshot the board as above, where near is the board as it was when
+  // it last cleared its changed rows and changed is what
+  // Board.changedRows() has recorded since. Rows not in changed are
+  // taken from near without reading the board, so a move costs the
+  // rows it wrote rather than a pass over the whole grid. With changed
+  // null every row is read and compared.
+  public static GameSnapshot of(Board board, int score, long randomState, GameSnapshot near,
+                                long[] changed){
+    int rows = board.getRows();
+    int cols = board.getCols();
+    if(near != null && (near.getRows() != rows || near.getCols() != cols)){
+      near = null;
+    }
+    Tile[][] snap = new Tile[rows][];
+    Tile[] row = new Tile[cols];
+    for(int i=0; i<rows; i++){
+      if(near != null && changed != null && (changed[i >>> 6] & (1L << i)) == 0){
+        snap[i] = near.rows[i];
+        continue;
+      }
+      board.readRow(i, row);
+      if(near != null && sameTiles(row, near.rows[i])){
+        snap[i] = near.rows[i];
+      }
+      else{
+        snap[i] = row.clone();
+      }
+    }
+    return new GameSnapshot(snap, score, randomState);
+  }
+
+  // This snapshot with another random number generator state, sharing
+  // all of its rows
+  public GameSnapshot withRandomState(long randomState){
+    if(randomState == this.randomState){
+      return this;
+    }
+    return new GameSnapshot(this.rows, this.score, randomState);
+  }
+
+  // Tiles are mostly shared instances, so identity finds unchanged rows
+  private static boolean sameTiles(Tile[] a, Tile[] b){
+    for(int j=0; j<a.length; j++){
+      if(a[j] != b[j]){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // A new board of the given style holding the snapshot's tiles
+  public Board toBoard(String boardStyle){
+    return Game2048.makeBoard(this.rows, boardStyle);
+  }
+
+  public int getRows(){
+    return this.rows.length;
+  }
+
+  public int getCols(){
+    return this.rows[0].length;
+  }
+
+  public int getScore(){
+    return this.score;
+  }
+
+  public long getRandomState(){
+    return this.randomState;
+  }
+
+  // How many row arrays this snapshot shares with other
+  public int sharedRows(GameSnapshot other){
+    int shared = 0;
+    for(int i=0; i<Math.min(this.rows.length, other.rows.length); i++){
+      if(this.rows[i] == other.rows[i]){
+        shared++;
+      }
+    }
+    return shared;
+  }
+
+}
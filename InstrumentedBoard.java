@@ -0,0 +1,155 @@
+// A Board which passes every call on to another Board, timing the
+// shifts, addTileAtFreeSpace, mergePossible, noMovesLeft,
+// previewMoves, tileAt and copy into a BoardMetrics. Copies are
+// instrumented into the same metrics, so searches which copy the
+// board are counted along with the game itself.
+//
+// Tiles touched is the number of tiles on the board when the call was
+// made, the tiles a shift, scan or copy has to deal with, and 1 for
+// tileAt and addTileAtFreeSpace.
+public class InstrumentedBoard extends Board {
+
+  private final Board board;
+  private final BoardMetrics metrics;
+
+  // Instrument board into metrics
+  public InstrumentedBoard(Board board, BoardMetrics metrics){
+    this.board = board;
+    this.metrics = metrics;
+  }
+
+  // The board being instrumented
+  public Board getBoard(){
+    return this.board;
+  }
+
+  public BoardMetrics getMetrics(){
+    return this.metrics;
+  }
+
+  public Board copy(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    Board copy = this.board.copy();
+    this.metrics.record(BoardMetrics.Op.COPY, System.nanoTime() - start, tiles);
+    return new InstrumentedBoard(copy, this.metrics);
+  }
+
+  public int getRows(){
+    return this.board.getRows();
+  }
+
+  public int getCols(){
+    return this.board.getCols();
+  }
+
+  public int getTileCount(){
+    return this.board.getTileCount();
+  }
+
+  public int getFreeSpaceCount(){
+    return this.board.getFreeSpaceCount();
+  }
+
+  public Tile tileAt(int i, int j){
+    long start = System.nanoTime();
+    Tile t = this.board.tileAt(i,j);
+    this.metrics.record(BoardMetrics.Op.TILE_AT, System.nanoTime() - start, 1);
+    return t;
+  }
+
+  public void readRow(int i, Tile[] row){
+    this.board.readRow(i, row);
+  }
+
+  public void clearChangedRows(){
+    this.board.clearChangedRows();
+  }
+
+  public long[] changedRows(){
+    return this.board.changedRows();
+  }
+
+  public boolean lastShiftMovedTiles(){
+    return this.board.lastShiftMovedTiles();
+  }
+
+  public boolean mergePossible(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    boolean possible = this.board.mergePossible();
+    this.metrics.record(BoardMetrics.Op.MERGE_POSSIBLE, System.nanoTime() - start, tiles);
+    return possible;
+  }
+
+  public boolean noMovesLeft(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    boolean over = this.board.noMovesLeft();
+    this.metrics.record(BoardMetrics.Op.NO_MOVES_LEFT, System.nanoTime() - start, tiles);
+    return over;
+  }
+
+  public MovePreview previewMoves(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    MovePreview preview = this.board.previewMoves();
+    this.metrics.record(BoardMetrics.Op.PREVIEW_MOVES, System.nanoTime() - start, tiles);
+    return preview;
+  }
+
+  public long zobristHash(){
+    return this.board.zobristHash();
+  }
+
+  public long estimatedBytes(){
+    return this.board.estimatedBytes();
+  }
+
+  public void addTileAtFreeSpace(int freeI, Tile tile){
+    long start = System.nanoTime();
+    this.board.addTileAtFreeSpace(freeI, tile);
+    this.metrics.record(BoardMetrics.Op.ADD_TILE, System.nanoTime() - start, 1);
+  }
+
+  public String debugString(){
+    return this.board.debugString();
+  }
+
+  public String toString(){
+    return this.board.toString();
+  }
+
+  public int shiftLeft(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    int score = this.board.shiftLeft();
+    this.metrics.record(BoardMetrics.Op.SHIFT_LEFT, System.nanoTime() - start, tiles);
+    return score;
+  }
+
+  public int shiftRight(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    int score = this.board.shiftRight();
+    this.metrics.record(BoardMetrics.Op.SHIFT_RIGHT, System.nanoTime() - start, tiles);
+    return score;
+  }
+
+  public int shiftUp(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    int score = this.board.shiftUp();
+    this.metrics.record(BoardMetrics.Op.SHIFT_UP, System.nanoTime() - start, tiles);
+    return score;
+  }
+
+  public int shiftDown(){
+    long tiles = this.board.getTileCount();
+    long start = System.nanoTime();
+    int score = this.board.shiftDown();
+    this.metrics.record(BoardMetrics.Op.SHIFT_DOWN, System.nanoTime() - start, tiles);
+    return score;
+  }
+
+}
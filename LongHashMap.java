@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+// Hash map from primitive long keys to non-null values. Open addressing
+// with linear probing keeps keys and values in two flat arrays, so
+// lookups box nothing and allocate nothing. Removal shifts later
+// entries of the probe run back instead of leaving tombstones, so the
+// table never fills with dead slots however many moves a board makes.
+public class LongHashMap<V> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;   // null marks an empty slot
+  private int mask;
+  private int size;
+
+  // Empty map
+  public LongHashMap(){
+    this(MIN_CAPACITY);
+  }
+
+  // Empty map with room for about expected entries before growing
+  public LongHashMap(int expected){
+    int capacity = MIN_CAPACITY;
+    while(capacity * 3 / 4 < expected){
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  // Number of entries
+  public int size(){
+    return this.size;
+  }
+
+  // The value for key, or null if there is none
+  @SuppressWarnings("unchecked")
+  public V get(long key){
+    for(int i=slot(key); this.values[i] != null; i=(i+1) & this.mask){
+      if(this.keys[i] == key){
+        return (V) this.values[i];
+      }
+    }
+    return null;
+  }
+
+  // Map key to value, returning the value it replaced or null
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value){
+    if(value == null){
+      throw new RuntimeException("LongHashMap can't hold null values");
+    }
+    int i = slot(key);
+    for(; this.values[i] != null; i=(i+1) & this.mask){
+      if(this.keys[i] == key){
+        V old = (V) this.values[i];
+        this.values[i] = value;
+        return old;
+      }
+    }
+    this.keys[i] = key;
+    this.values[i] = value;
+    if(++this.size > (this.mask+1) * 3 / 4){
+      resize((this.mask+1) * 2);
+    }
+    return null;
+  }
+
+  // Remove key's entry, returning its value or null if there was none
+  @SuppressWarnings("unchecked")
+  public V remove(long key){
+    int i = slot(key);
+    for(; this.values[i] != null; i=(i+1) & this.mask){
+      if(this.keys[i] == key){
+        V old = (V) this.values[i];
+        closeGap(i);
+        this.size--;
+        return old;
+      }
+    }
+    return null;
+  }
+
+  // Remove every entry
+  public void clear(){
+    Arrays.fill(this.values, null);
+    this.size = 0;
+  }
+
+  // Rough heap footprint in bytes, not counting the values themselves
+  public long estimatedBytes(){
+    return 32 + Board.arrayBytes(this.keys.length, 8) + Board.arrayBytes(this.values.length, 4);
+  }
+
+  // Empty slot i, then move back any later entry of the same probe run
+  // which could no longer be reached past the gap
+  private void closeGap(int gap){
+    this.values[gap] = null;
+    for(int i=(gap+1) & this.mask; this.values[i] != null; i=(i+1) & this.mask){
+      int home = slot(this.keys[i]);
+      // the entry stays if its home lies cyclically in (gap, i]
+      boolean stays = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+      if(!stays){
+        this.keys[gap] = this.keys[i];
+        this.values[gap] = this.values[i];
+        this.values[i] = null;
+        gap = i;
+      }
+    }
+  }
+
+  private int slot(long key){
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & this.mask;
+  }
+
+  private void allocate(int capacity){
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private void resize(int capacity){
+    long[] oldKeys = this.keys;
+    Object[] oldValues = this.values;
+    allocate(capacity);
+    for(int i=0; i<oldValues.length; i++){
+      if(oldValues[i] != null){
+        int j = slot(oldKeys[i]);
+        while(this.values[j] != null){
+          j = (j+1) & this.mask;
+        }
+        this.keys[j] = oldKeys[i];
+        this.values[j] = oldValues[i];
+      }
+    }
+  }
+
+}
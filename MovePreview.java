@@ -0,0 +1,132 @@
+// The outcome of shifting a board in each of the four directions: the
+// score each shift would make and whether it would move any tile.
+// Boards build one with previewMoves() without changing themselves.
+public class MovePreview {
+
+  private final int[] scores = new int[4];         // indexed by Direction.ordinal()
+  private final boolean[] moves = new boolean[4];
+
+  // A preview from the score and moved flag of each direction, indexed
+  // by Direction.ordinal()
+  public MovePreview(int[] scores, boolean[] moves){
+    for(int d=0; d<4; d++){
+      this.scores[d] = scores[d];
+      this.moves[d] = moves[d];
+    }
+  }
+
+  // A preview from one scan over the rows and one over the columns
+  MovePreview(LineScan rows, LineScan cols){
+    set(Direction.LEFT, rows.score, rows.merged || rows.towardStart);
+    set(Direction.RIGHT, rows.score, rows.merged || rows.towardEnd);
+    set(Direction.UP, cols.score, cols.merged || cols.towardStart);
+    set(Direction.DOWN, cols.score, cols.merged || cols.towardEnd);
+  }
+
+  private void set(Direction d, int score, boolean moved){
+    this.scores[d.ordinal()] = score;
+    this.moves[d.ordinal()] = moved;
+  }
+
+  // Score the shift in direction d would make
+  public int score(Direction d){
+    return this.scores[d.ordinal()];
+  }
+
+  // true if the shift in direction d would move any tile
+  public boolean moves(Direction d){
+    return this.moves[d.ordinal()];
+  }
+
+  // true if any shift would move a tile
+  public boolean anyMoves(){
+    return this.moves[0] || this.moves[1] || this.moves[2] || this.moves[3];
+  }
+
+  public String toString(){
+    StringBuilder sb = new StringBuilder();
+    for(Direction d : Direction.values()){
+      sb.append(String.format("%s %s %d  ", d, moves(d) ? "moves" : "stays", score(d)));
+    }
+    return sb.toString().trim();
+  }
+
+  // Works out what shifting a set of parallel lines toward their start
+  // and toward their end would do, fed one line at a time in order.
+  // Both shifts make the same merges: the tiles between two bricks
+  // pair off within each run of equal tiles, whichever end they are
+  // pushed toward. A shift toward the start moves something if a tile
+  // has an empty space before it with no brick in between; toward the
+  // end if a tile has one after it.
+  static class LineScan {
+    int score;                  // score of either shift
+    boolean merged;             // some tiles would merge
+    boolean towardStart;        // some tile would slide toward the start
+    boolean towardEnd;          // some tile would slide toward the end
+
+    private Tile run;           // tile of the current run of equal tiles
+    private int runLength;
+    private boolean emptyBefore;  // an empty space since the last brick
+    private boolean tileBefore;   // a tile since the last brick
+
+    // Begin a new line
+    void startLine(){
+      this.run = null;
+      this.runLength = 0;
+      this.emptyBefore = false;
+      this.tileBefore = false;
+    }
+
+    // The next cell of the line is empty
+    void empty(){
+      if(this.tileBefore){
+        this.towardEnd = true;
+      }
+      this.emptyBefore = true;
+    }
+
+    // The next cell of the line holds t
+    void tile(Tile t){
+      tile(t, true);
+    }
+
+    // The next cell of the line holds t; tiles the board won't let
+    // merge any further are passed with mayMerge false
+    void tile(Tile t, boolean mayMerge){
+      if(!t.isMovable()){
+        endRun();
+        this.emptyBefore = false;
+        this.tileBefore = false;
+        return;
+      }
+      if(this.emptyBefore){
+        this.towardStart = true;
+      }
+      this.tileBefore = true;
+      if(mayMerge && this.run != null && this.run.mergesWith(t)){
+        this.runLength++;
+        return;
+      }
+      endRun();
+      if(mayMerge){
+        this.run = t;
+        this.runLength = 1;
+      }
+    }
+
+    // The line is over
+    void endLine(){
+      endRun();
+    }
+
+    private void endRun(){
+      if(this.runLength >= 2){
+        this.score += (this.runLength / 2) * this.run.merge(this.run).getScore();
+        this.merged = true;
+      }
+      this.run = null;
+      this.runLength = 0;
+    }
+  }
+
+}
@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Expectimax player which splits the search at the root across a
+// ForkJoinPool. Each of the four moves is a task, and each move forks
+// one task per spawn the game could make after it (every free space
+// times every spawn value). Every task works on its own Board.copy();
+// below the spawn layer a task searches sequentially with the same
+// code as ExpectimaxPlayer. All tasks share one concurrent
+// transposition table.
+//
+// Statistics of every task of the last search iteration are kept so
+// the parallelism level can be tuned: which worker ran it, whether it
+// was stolen from the worker that forked it, its node count and time.
+public class ParallelExpectimaxPlayer extends ExpectimaxPlayer {
+
+  // What one task of the last iteration did
+  public static class TaskStat {
+    public final String task;
+    public final String worker;
+    public final boolean stolen;
+    public final long nodes;
+    public final long nanos;
+
+    TaskStat(String task, String worker, boolean stolen, long nodes, long nanos){
+      this.task = task;
+      this.worker = worker;
+      this.stolen = stolen;
+      this.nodes = nodes;
+      this.nanos = nanos;
+    }
+
+    public String toString(){
+      return String.format("%-16s %-28s %-6s %10d nodes %9.3f ms",
+                           this.task, this.worker, this.stolen ? "stolen" : "local",
+                           this.nodes, this.nanos / 1e6);
+    }
+  }
+
+  private final ForkJoinPool pool;
+  private final LongAdder searchNodes = new LongAdder();
+  private final LongAdder searchHits = new LongAdder();
+  private ConcurrentLinkedQueue<TaskStat> taskStats = new ConcurrentLinkedQueue<TaskStat>();
+  private long steals;           // pool steals during the last bestMove()
+
+  // Create a player searching up to maxDepth moves ahead with no time
+  // limit on a pool of the given parallelism
+  public ParallelExpectimaxPlayer(int maxDepth, int parallelism){
+    this(maxDepth, 0, parallelism);
+  }
+
+  // Create a player searching up to maxDepth moves ahead, giving up on
+  // deeper iterations after budgetMillis milliseconds (0 for no limit),
+  // on a pool of the given parallelism
+  public ParallelExpectimaxPlayer(int maxDepth, long budgetMillis, int parallelism){
+    super(maxDepth, budgetMillis, new ConcurrentHashMap<Long,Entry>());
+    this.pool = new ForkJoinPool(parallelism);
+  }
+
+  // Return the best direction to shift the board in, or null if no
+  // shift would move any tile. The board is not changed.
+  public Direction bestMove(Board board){
+    long stealsBefore = this.pool.getStealCount();
+    Direction best = super.bestMove(board);
+    this.steals = this.pool.getStealCount() - stealsBefore;
+    return best;
+  }
+
+  // Search the four moves in parallel to the given depth
+  protected Direction searchRoot(Board board, int depth){
+    this.taskStats = new ConcurrentLinkedQueue<TaskStat>();
+    this.searchNodes.reset();
+    this.searchHits.reset();
+    try{
+      return this.pool.invoke(new RootTask(board, depth));
+    }
+    finally{
+      this.nodes += this.searchNodes.sumThenReset();
+      this.tableHits += this.searchHits.sumThenReset();
+    }
+  }
+
+  // Picks the best of the four move tasks
+  private class RootTask extends RecursiveTask<Direction> {
+    private static final long serialVersionUID = 1L;
+    private final Board board;
+    private final int depth;
+
+    RootTask(Board board, int depth){
+      this.board = board;
+      this.depth = depth;
+    }
+
+    protected Direction compute(){
+      List<MoveTask> moves = new ArrayList<MoveTask>();
+      for(Direction d : Direction.values()){
+        moves.add(new MoveTask(this.board.copy(), d, this.depth));
+      }
+      invokeAll(moves);
+      Direction best = null;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for(MoveTask move : moves){
+        Double value = move.join();
+        if(value != null && value > bestValue){
+          bestValue = value;
+          best = move.direction;
+        }
+      }
+      return best;
+    }
+  }
+
+  // Value of one root move: its score plus the average over the spawn
+  // tasks forked after it, or null if the move changes nothing. A move
+  // which fills the board forks one task for the player's next move.
+  private class MoveTask extends RecursiveTask<Double> {
+    private static final long serialVersionUID = 1L;
+    private final Board board;
+    private final Direction direction;
+    private final int depth;
+    private final Thread forkedBy = Thread.currentThread();
+
+    MoveTask(Board board, Direction direction, int depth){
+      this.board = board;
+      this.direction = direction;
+      this.depth = depth;
+    }
+
+    protected Double compute(){
+      long start = System.nanoTime();
+      int score = this.direction.shift(this.board);
+      if(!this.board.lastShiftMovedTiles()){
+        return null;
+      }
+      searchNodes.increment();
+      long key = hash(this.board);
+      Entry entry = table.get(key);
+      double value;
+      if(entry != null && entry.depth >= this.depth){
+        searchHits.increment();
+        value = entry.value;
+      }
+      else{
+        int free = this.board.getFreeSpaceCount();
+        List<SpawnTask> spawns = new ArrayList<SpawnTask>();
+        if(free == 0){
+          // nothing spawns, so the player moves again as in chanceNode()
+          spawns.add(new SpawnTask(this.board, this.depth-1, 1.0, this.direction+"/full"));
+        }
+        for(int i=0; i<free; i++){
+          for(int s=0; s<SPAWN_VALUES.length; s++){
+            Board child = this.board.copy();
+            child.addTileAtFreeSpace(i, TwoNTile.valueOf(SPAWN_VALUES[s]));
+            spawns.add(new SpawnTask(child, this.depth-1, SPAWN_ODDS[s],
+                                     this.direction+"/"+i+"/"+SPAWN_VALUES[s]));
+          }
+        }
+        invokeAll(spawns);
+        double sum = 0.0;
+        for(SpawnTask spawn : spawns){
+          sum += spawn.odds * spawn.join();
+        }
+        value = free == 0 ? sum : sum / free;
+        table.put(key, new Entry(value, this.depth));
+      }
+      record(this.direction.toString(), this.forkedBy, 1, start);
+      return score + value;
+    }
+  }
+
+  // Sequential search below one spawn
+  private class SpawnTask extends RecursiveTask<Double> {
+    private static final long serialVersionUID = 1L;
+    private final Board board;
+    private final int depth;
+    private final double odds;
+    private final String name;
+    private final Thread forkedBy = Thread.currentThread();
+
+    SpawnTask(Board board, int depth, double odds, String name){
+      this.board = board;
+      this.depth = depth;
+      this.odds = odds;
+      this.name = name;
+    }
+
+    protected Double compute(){
+      long start = System.nanoTime();
+      ExpectimaxPlayer worker = new ExpectimaxPlayer(maxDepth, 0, table);
+      try{
+        return worker.searchPlayerNode(this.board, this.depth, deadline);
+      }
+      finally{
+        searchNodes.add(worker.nodes);
+        searchHits.add(worker.tableHits);
+        record(this.name, this.forkedBy, worker.nodes, start);
+      }
+    }
+  }
+
+  private void record(String task, Thread forkedBy, long taskNodes, long start){
+    Thread worker = Thread.currentThread();
+    this.taskStats.add(new TaskStat(task, worker.getName(), worker != forkedBy,
+                                    taskNodes, System.nanoTime() - start));
+  }
+
+  // Parallelism level of the pool
+  public int getParallelism(){
+    return this.pool.getParallelism();
+  }
+
+  // Steals counted by the pool during the last call to bestMove()
+  public long getStealCount(){
+    return this.steals;
+  }
+
+  // Statistics for each task of the last search iteration
+  public List<TaskStat> getTaskStats(){
+    return new ArrayList<TaskStat>(this.taskStats);
+  }
+
+  // Per-worker summary of the last search iteration: tasks run, how
+  // many of them were stolen, and nodes searched
+  public String taskReport(){
+    Map<String,long[]> byWorker = new HashMap<String,long[]>();
+    for(TaskStat stat : this.taskStats){
+      long[] totals = byWorker.get(stat.worker);
+      if(totals == null){
+        totals = new long[3];
+        byWorker.put(stat.worker, totals);
+      }
+      totals[0]++;
+      totals[1] += stat.stolen ? 1 : 0;
+      totals[2] += stat.nodes;
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("parallelism %d, %d pool steals, %d tasks\n",
+                            getParallelism(), this.steals, this.taskStats.size()));
+    for(Map.Entry<String,long[]> e : byWorker.entrySet()){
+      long[] totals = e.getValue();
+      sb.append(String.format("  %-28s %6d tasks %6d stolen %12d nodes\n",
+                              e.getKey(), totals[0], totals[1], totals[2]));
+    }
+    return sb.toString();
+  }
+
+  // Stop the pool's worker threads
+  public void shutdown(){
+    this.pool.shutdown();
+  }
+
+}
@@ -3,21 +3,24 @@ import java.util.Scanner;
 // Class to play a single game of 2048 with bricks
 public class PlayText2048 {
 
+  // How many moves back undo can go
+  public static final int UNDO_LIMIT = 1000;
+
   // Play a game of 2048 of the given size. Allows one to specify the
   // a number of random bricks, whether to use a sparse/dense board
   // and a random seed.
   // 
-  // usage: java PlayText2048 rows cols bricks {sparse|dense} [random-seed]
+  // usage: java PlayText2048 rows cols bricks {sparse|dense|bit|byte} [random-seed]
   //   rows/cols: the size of the board [int]
   //   bricks: the number of immovable bricks to add to the board, 0 for none [int]
-  //   {sparse|dense}: use either a sparse or dense board ["sparse" or "dense"]
+  //   {sparse|dense|bit|byte}: use a sparse, dense, 4x4 bit-packed or byte-per-cell board ["sparse", "dense", "bit" or "byte"]
   //   random-seed: used to initialize the random number generator [int]
   public static void main(String args[]){
     if(args.length < 4){
-      System.out.println("usage: java PlayText2048 rows cols bricks {sparse|dense} [random-seed]");
+      System.out.println("usage: java PlayText2048 rows cols bricks {sparse|dense|bit|byte} [random-seed]");
       System.out.println("  rows/cols: the size of the board [int]");
       System.out.println("  bricks: the number of immovable bricks to add to the board, 0 for none [int]");
-      System.out.println("  {sparse|dense}: use either a sparse or dense board ['sparse' or 'dense']");
+      System.out.println("  {sparse|dense|bit|byte}: use a sparse, dense, 4x4 bit-packed or byte-per-cell board ['sparse', 'dense', 'bit' or 'byte']");
       System.out.println("  random-seed: used to initialize the random number generator [int]");
       return;
     }
@@ -26,10 +29,10 @@ public class PlayText2048 {
     int cols = Integer.parseInt(args[1]);
     int brickCount = Integer.parseInt(args[2]);
     String boardStyle = args[3];
-    boolean useSparse = false;
-    if(boardStyle.equals("sparse")){ useSparse = true; }
-    else if(boardStyle.equals("dense")){ useSparse = false; }
-    else{ throw new RuntimeException(String.format("3rd arg '%s' must be either 'sparse' or 'dense'",boardStyle)); }
+    if(!boardStyle.equals("sparse") && !boardStyle.equals("dense") && !boardStyle.equals("bit")
+       && !boardStyle.equals("byte")){
+      throw new RuntimeException(String.format("3rd arg '%s' must be either 'sparse', 'dense', 'bit' or 'byte'",boardStyle));
+    }
     int seed = 13579;           // Default random number
     if(args.length >= 5){
       seed = Integer.parseInt(args[4]);
@@ -37,25 +40,22 @@ public class PlayText2048 {
 
     System.out.println("Instructions");
     System.out.println("------------");
-    System.out.println("Enter moves as l r u d q for");
+    System.out.println("Enter moves as l r u d z y m q for");
     System.out.println("l: shift left");
     System.out.println("r: shift right");
     System.out.println("u: shift up");
     System.out.println("d: shift down");
+    System.out.println("z: undo the last move");
+    System.out.println("y: redo a move undone");
+    System.out.println("m: show board operation metrics");
     System.out.println("q: quit game");
     System.out.println();
 
-    Game2048 game = new Game2048(rows,cols,seed,useSparse);
-    // Add bricks to the game
-    for(int i=0; i<brickCount; i++){
-      game.addRandomBrick();
-    }
-    // Default is 25% of board has tiles, round down
-    int initialTiles = rows*cols/4-brickCount;
-    initialTiles = initialTiles==0 ? 1 : initialTiles;
-    for(int i=0; i<initialTiles; i++){
-      game.addRandomTile();
-    }
+    Game2048 game = new Game2048(rows,cols,seed,boardStyle);
+    // Add bricks to the game, then tiles on 25% of the board
+    game.addStartingTiles(brickCount);
+    game.setUndoLimit(UNDO_LIMIT);
+    game.setMetrics(new BoardMetrics());
 
     Scanner stdin = new Scanner(System.in);
     while(!game.isGameOver()){
@@ -68,23 +68,33 @@ public class PlayText2048 {
         break; 
       }
       else if(input.equals("l")){
-        game.shiftLeft();
+        game.move(Direction.LEFT);
       }
       else if(input.equals("r")){
-        game.shiftRight();
+        game.move(Direction.RIGHT);
       }
       else if(input.equals("u")){
-        game.shiftUp();
+        game.move(Direction.UP);
       }
       else if(input.equals("d")){
-        game.shiftDown();
+        game.move(Direction.DOWN);
+      }
+      else if(input.equals("z")){
+        if(!game.undo()){
+          System.out.println("Nothing to undo");
+        }
+      }
+      else if(input.equals("y")){
+        if(!game.redo()){
+          System.out.println("Nothing to redo");
+        }
+      }
+      else if(input.equals("m")){
+        System.out.println();
+        System.out.print(game.metricsReport());
       }
 
       System.out.println(input);
-
-      if(game.lastShiftMovedTiles()){
-        game.addRandomTile();
-      }
     }
     System.out.println(game);
     System.out.printf("Game Over! Final Score: %d\n",game.getScore());
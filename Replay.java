@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+// A recorded game: how it was set up and the direction of every move,
+// which is all it takes to play the game again exactly. A new game is
+// made the way PlayText2048 and BatchRunner make one, Game2048 with
+// the board size, style and seed followed by addStartingTiles(bricks),
+// and every later random tile comes from the game's seeded generator.
+//
+// Moves are packed four to a byte, two bits each, so a game of a few
+// thousand moves is well under a kilobyte where its board states would
+// be megabytes. ReplayWriter and ReplayReader put replays in streams.
+public class Replay {
+
+  // Board styles by the code stored for them
+  static final String[] STYLES = {"dense", "sparse", "bit", "byte"};
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final int rows;
+  private final int cols;
+  private final int bricks;
+  private final String boardStyle;
+  private final int seed;
+  private byte[] moves;         // move k in bits 2(k%4)..2(k%4)+1 of moves[k/4]
+  private int moveCount;
+
+  // An empty replay of a game with the given setup
+  public Replay(int rows, int cols, int bricks, String boardStyle, int seed){
+    this(rows, cols, bricks, boardStyle, seed, new byte[16], 0);
+  }
+
+  // A replay with moveCount moves already packed into moves
+  Replay(int rows, int cols, int bricks, String boardStyle, int seed,
+         byte[] moves, int moveCount){
+    styleCode(boardStyle);      // fail early on a style we can't store
+    this.rows = rows;
+    this.cols = cols;
+    this.bricks = bricks;
+    this.boardStyle = boardStyle;
+    this.seed = seed;
+    this.moves = moves;
+    this.moveCount = moveCount;
+  }
+
+  // Add the next move of the game
+  public void record(Direction d){
+    int k = this.moveCount;
+    if((k >> 2) == this.moves.length){
+      this.moves = Arrays.copyOf(this.moves, this.moves.length * 2);
+    }
+    this.moves[k >> 2] |= d.ordinal() << ((k & 3) * 2);
+    this.moveCount = k + 1;
+  }
+
+  // The kth move, counting from 0
+  public Direction getMove(int k){
+    if(k < 0 || k >= this.moveCount){
+      throw new RuntimeException("No move "+k+" in a replay of "+this.moveCount+" moves");
+    }
+    return DIRECTIONS[(this.moves[k >> 2] >> ((k & 3) * 2)) & 3];
+  }
+
+  public int getMoveCount(){
+    return this.moveCount;
+  }
+
+  public int getRows(){
+    return this.rows;
+  }
+
+  public int getCols(){
+    return this.cols;
+  }
+
+  public int getBricks(){
+    return this.bricks;
+  }
+
+  public String getBoardStyle(){
+    return this.boardStyle;
+  }
+
+  public int getSeed(){
+    return this.seed;
+  }
+
+  // The game as it was before its first move
+  public Game2048 newGame(){
+    Game2048 game = new Game2048(this.rows, this.cols, this.seed, this.boardStyle);
+    game.addStartingTiles(this.bricks);
+    return game;
+  }
+
+  // The game as it was after its first n moves
+  public Game2048 gameAfter(int n){
+    if(n < 0 || n > this.moveCount){
+      throw new RuntimeException("No move "+n+" in a replay of "+this.moveCount+" moves");
+    }
+    Game2048 game = newGame();
+    for(int k=0; k<n; k++){
+      game.move(getMove(k));
+    }
+    return game;
+  }
+
+  // The packed moves, exactly (moveCount+3)/4 bytes of them
+  byte[] packedMoves(){
+    return Arrays.copyOf(this.moves, (this.moveCount + 3) / 4);
+  }
+
+  static int styleCode(String boardStyle){
+    for(int code=0; code<STYLES.length; code++){
+      if(STYLES[code].equals(boardStyle)){
+        return code;
+      }
+    }
+    throw new RuntimeException(String.format("Unknown board style '%s'",boardStyle));
+  }
+
+  public String toString(){
+    return String.format("%dx%d %s board, %d bricks, seed %d, %d moves",
+                         this.rows, this.cols, this.boardStyle, this.bricks,
+                         this.seed, this.moveCount);
+  }
+
+}
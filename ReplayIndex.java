@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+
+// Keyframes of a Replay for seeking: a snapshot of the game every
+// interval moves, so the game after any move n is the keyframe at or
+// before n plus fewer than interval moves played on top, however long
+// the game is. A larger interval keeps fewer snapshots and plays more
+// moves per seek.
+//
+// Keyframes are GameSnapshots taken one after the other, so each shares
+// every row which has not changed since the keyframe before it.
+public class ReplayIndex {
+
+  public static final int DEFAULT_INTERVAL = 1000;
+
+  private final Replay replay;
+  private final int interval;
+  private final ArrayList<GameSnapshot> keyframes = new ArrayList<GameSnapshot>();
+
+  // Index the replay's moves so far by playing it through once
+  public ReplayIndex(Replay replay, int interval){
+    if(interval < 1){
+      throw new RuntimeException("Keyframe interval must be positive: "+interval);
+    }
+    this.replay = replay;
+    this.interval = interval;
+    Game2048 game = replay.newGame();
+    this.keyframes.add(game.snapshot(null));
+    for(int k=0; k<replay.getMoveCount(); k++){
+      game.move(replay.getMove(k));
+      addKeyframeIfDue(game, k+1);
+    }
+  }
+
+  // Keep the index in step with a game being recorded: call after each
+  // move the replay records, with game as it is after that move. No
+  // moves are played again.
+  public void extend(Game2048 game){
+    addKeyframeIfDue(game, this.replay.getMoveCount());
+  }
+
+  private void addKeyframeIfDue(Game2048 game, int moves){
+    if(moves == this.keyframes.size() * this.interval){
+      GameSnapshot last = this.keyframes.get(this.keyframes.size()-1);
+      this.keyframes.add(game.snapshot(last));
+    }
+  }
+
+  // The game as it was after its first n moves
+  public Game2048 gameAfter(int n){
+    if(n < 0 || n > this.replay.getMoveCount()){
+      throw new RuntimeException("No move "+n+" in a replay of "+this.replay.getMoveCount()+" moves");
+    }
+    int key = Math.min(n / this.interval, this.keyframes.size()-1);
+    Game2048 game = new Game2048(this.keyframes.get(key), this.replay.getBoardStyle());
+    for(int k=key*this.interval; k<n; k++){
+      game.move(this.replay.getMove(k));
+    }
+    return game;
+  }
+
+  public Replay getReplay(){
+    return this.replay;
+  }
+
+  public int getInterval(){
+    return this.interval;
+  }
+
+  public int getKeyframeCount(){
+    return this.keyframes.size();
+  }
+
+}
@@ -0,0 +1,98 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads back the Replays a ReplayWriter appended to a stream, in the
+// order they were written. See ReplayWriter for the record layout.
+public class ReplayReader implements Closeable {
+
+  // usage: java ReplayReader replay-file [game] [moves]
+  //   replay-file: a file of replays, e.g. from BatchRunner [path]
+  //   game: print this game, counting from 0, instead of listing all [int]
+  //   moves: print the game after this many moves, default all [int]
+  public static void main(String args[]) throws IOException {
+    if(args.length < 1){
+      System.out.println("usage: java ReplayReader replay-file [game] [moves]");
+      System.out.println("  replay-file: a file of replays, e.g. from BatchRunner [path]");
+      System.out.println("  game: print this game, counting from 0, instead of listing all [int]");
+      System.out.println("  moves: print the game after this many moves, default all [int]");
+      return;
+    }
+    int wanted = args.length >= 2 ? Integer.parseInt(args[1]) : -1;
+    try(ReplayReader reader = new ReplayReader(new FileInputStream(args[0]))){
+      int index = 0;
+      for(Replay replay = reader.next(); replay != null; replay = reader.next(), index++){
+        if(wanted < 0){
+          System.out.printf("%d: %s\n", index, replay);
+        }
+        else if(index == wanted){
+          int moves = args.length >= 3 ? Integer.parseInt(args[2]) : replay.getMoveCount();
+          System.out.printf("%s\nafter %d moves\n", replay, moves);
+          System.out.println(replay.gameAfter(moves));
+          return;
+        }
+      }
+      if(wanted >= 0){
+        System.out.printf("No game %d, the file holds %d\n", wanted, index);
+      }
+    }
+  }
+
+  private final DataInputStream in;
+
+  // Read replays from in, which is closed along with the reader
+  public ReplayReader(InputStream in){
+    this.in = new DataInputStream(new BufferedInputStream(in));
+  }
+
+  // The next replay, or null at the end of the stream
+  public Replay next() throws IOException {
+    int magic = this.in.read();
+    if(magic < 0){
+      return null;
+    }
+    if(magic != ReplayWriter.MAGIC){
+      throw new RuntimeException(String.format("Not a replay record: byte 0x%02x", magic));
+    }
+    try{
+      int rows = readVarint(this.in);
+      int cols = readVarint(this.in);
+      int bricks = readVarint(this.in);
+      int style = this.in.readUnsignedByte();
+      if(style >= Replay.STYLES.length){
+        throw new RuntimeException("Unknown board style code "+style);
+      }
+      int seed = this.in.readInt();
+      int moveCount = readVarint(this.in);
+      byte[] moves = new byte[Math.max(16, (moveCount + 3) / 4)];
+      this.in.readFully(moves, 0, (moveCount + 3) / 4);
+      return new Replay(rows, cols, bricks, Replay.STYLES[style], seed, moves, moveCount);
+    }
+    catch(EOFException e){
+      throw new RuntimeException("Replay record cut short", e);
+    }
+  }
+
+  public void close() throws IOException {
+    this.in.close();
+  }
+
+  // Read a varint written by ReplayWriter.writeVarint()
+  static int readVarint(DataInput in) throws IOException {
+    int value = 0;
+    for(int shift=0; shift<32; shift+=7){
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if((b & 0x80) == 0){
+        return value;
+      }
+    }
+    throw new RuntimeException("Varint longer than an int");
+  }
+
+}
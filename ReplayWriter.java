@@ -0,0 +1,65 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Appends finished Replays to a stream, one self-contained record
+// after another, so many games (from many threads) can share one
+// archive file and a file opened for append just grows. Moves are
+// recorded into the Replay in memory while a game runs; the stream is
+// only touched once per game, through a large buffer.
+//
+// Record layout, integers as varints unless noted:
+//   MAGIC byte, rows, cols, bricks, board style code byte,
+//   seed (4 bytes), move count, (move count + 3)/4 bytes of moves
+// Moves are two bits each, first move in the low bits of its byte, in
+// Direction order: LEFT 0, RIGHT 1, UP 2, DOWN 3.
+public class ReplayWriter implements Closeable {
+
+  static final int MAGIC = 0xB2;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final DataOutputStream out;
+
+  // Write replays to out, which is closed along with the writer
+  public ReplayWriter(OutputStream out){
+    this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+  }
+
+  // Append one replay
+  public synchronized void write(Replay replay) throws IOException {
+    this.out.writeByte(MAGIC);
+    writeVarint(this.out, replay.getRows());
+    writeVarint(this.out, replay.getCols());
+    writeVarint(this.out, replay.getBricks());
+    this.out.writeByte(Replay.styleCode(replay.getBoardStyle()));
+    this.out.writeInt(replay.getSeed());
+    writeVarint(this.out, replay.getMoveCount());
+    this.out.write(replay.packedMoves());
+  }
+
+  // Push buffered records to the underlying stream
+  public synchronized void flush() throws IOException {
+    this.out.flush();
+  }
+
+  public synchronized void close() throws IOException {
+    this.out.close();
+  }
+
+  // Write a non-negative int seven bits at a time, low bits first, with
+  // the top bit of each byte set when more follow
+  static void writeVarint(DataOutput out, int value) throws IOException {
+    if(value < 0){
+      throw new RuntimeException("Can't write negative varint "+value);
+    }
+    while(value >= 0x80){
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+}
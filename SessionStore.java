@@ -0,0 +1,361 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Keeps games by id with only the recently used ones in memory. Games
+// in memory are held under a byte budget, measured with
+// Game2048.estimatedBytes(); when it is exceeded the least recently
+// used idle games are written to a directory with Game2048.writeTo()
+// and dropped, and read back the next time they are asked for.
+//
+// A game is used between acquire() and release(). It stays in memory
+// while in use, and is measured again on release since moves change
+// its size. Undo history does not survive a trip to disk.
+//
+// The store's lock only guards its maps and counters. Files are
+// written and read outside it, by the thread whose call caused the
+// spill or the miss, so one session's disk IO holds up only callers
+// wanting that same session. While a game is being saved or loaded its
+// entry carries a future which such callers wait on.
+public class SessionStore {
+
+  private enum State {
+    MEMORY,                     // in memory and in the LRU order
+    SAVING,                     // in memory, being written to disk
+    DISK,                       // only on disk
+    LOADING                     // on disk, being read back
+  }
+
+  private static class Entry {
+    final long id;
+    State state = State.MEMORY;
+    Game2048 game;              // null while only on disk
+    long bytes;
+    int users;                  // acquire() calls not yet released
+    int waiters;                // acquire() calls waiting for io
+    boolean removed;            // remove() called while io was under way
+    CompletableFuture<Void> io; // done when a save or load ends
+
+    Entry(long id, Game2048 game){
+      this.id = id;
+      this.game = game;
+      this.bytes = game.estimatedBytes();
+    }
+  }
+
+  private final long budget;
+  private final File dir;
+  // every game in the store by id
+  private final HashMap<Long,Entry> entries = new HashMap<Long,Entry>();
+  // games in memory which may be spilled, least recently used first
+  private final LinkedHashMap<Long,Entry> resident = new LinkedHashMap<Long,Entry>(16, 0.75f, true);
+  private long residentBytes;   // all games in memory, including those being saved
+  private long savingBytes;     // games being saved
+  private int saving;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long saveFailures;
+  private RuntimeException lastSaveFailure;
+
+  // A store keeping at most about budget bytes of games in memory and
+  // the rest as files in dir, which is created if need be
+  public SessionStore(long budget, File dir){
+    if(!dir.isDirectory() && !dir.mkdirs()){
+      throw new RuntimeException("Can't make session directory "+dir);
+    }
+    this.budget = budget;
+    this.dir = dir;
+  }
+
+  // Add a game under a new id
+  public void put(long id, Game2048 game){
+    List<Entry> victims;
+    synchronized(this){
+      if(this.entries.containsKey(id)){
+        throw new RuntimeException("Session "+id+" already exists");
+      }
+      Entry entry = new Entry(id, game);
+      this.entries.put(id, entry);
+      this.resident.put(id, entry);
+      this.residentBytes += entry.bytes;
+      victims = pickVictims();
+    }
+    spill(victims);
+  }
+
+  // The game with the given id, read back from disk if it was evicted,
+  // or null if there is none. Until release(id) the game stays in
+  // memory and may be changed by the caller.
+  public Game2048 acquire(long id){
+    while(true){
+      Entry entry;
+      CompletableFuture<Void> wait = null;
+      synchronized(this){
+        entry = this.entries.get(id);
+        if(entry == null){
+          return null;
+        }
+        switch(entry.state){
+          case MEMORY:
+            this.hits++;
+            this.resident.get(id);          // now the most recently used
+            entry.users++;
+            return entry.game;
+          case SAVING:
+          case LOADING:
+            entry.waiters++;
+            wait = entry.io;
+            break;
+          case DISK:
+            this.misses++;
+            entry.state = State.LOADING;
+            entry.io = new CompletableFuture<Void>();
+            break;
+        }
+      }
+      if(wait != null){
+        wait.join();
+        synchronized(this){
+          entry.waiters--;
+        }
+        continue;                           // see what the io left behind
+      }
+      return reload(entry);
+    }
+  }
+
+  // Read a game back from disk for acquire(), which has marked it
+  // LOADING. If the file can't be read the game stays on disk.
+  private Game2048 reload(Entry entry){
+    Game2048 game = null;
+    List<Entry> victims = null;
+    boolean discard;
+    try{
+      game = load(entry.id);
+    }
+    finally{
+      synchronized(this){
+        discard = entry.removed;
+        if(game == null){
+          entry.state = State.DISK;         // failed; a later call may retry
+        }
+        else if(!discard){
+          entry.state = State.MEMORY;
+          entry.game = game;
+          entry.bytes = game.estimatedBytes();
+          entry.users++;
+          this.resident.put(entry.id, entry);
+          this.residentBytes += entry.bytes;
+          victims = pickVictims();
+        }
+        entry.io.complete(null);
+      }
+      if(game == null && discard){
+        fileFor(entry.id).delete();
+      }
+    }
+    fileFor(entry.id).delete();
+    if(discard){
+      return null;                          // removed while being read
+    }
+    spill(victims);
+    return game;
+  }
+
+  // Done with a game from acquire(); it may now be evicted
+  public void release(long id){
+    List<Entry> victims;
+    synchronized(this){
+      Entry entry = this.entries.get(id);
+      if(entry == null || entry.state != State.MEMORY || entry.users == 0){
+        throw new RuntimeException("Session "+id+" is not in use");
+      }
+      entry.users--;
+      long bytes = entry.game.estimatedBytes();
+      this.residentBytes += bytes - entry.bytes;
+      entry.bytes = bytes;
+      victims = pickVictims();
+    }
+    spill(victims);
+  }
+
+  // Forget a game, in memory or on disk. Returns false if there was none.
+  public boolean remove(long id){
+    boolean onDisk;
+    synchronized(this){
+      Entry entry = this.entries.remove(id);
+      if(entry == null){
+        return false;
+      }
+      onDisk = entry.state == State.DISK;
+      if(entry.state == State.MEMORY){
+        this.resident.remove(id);
+        this.residentBytes -= entry.bytes;
+      }
+      else if(!onDisk){
+        entry.removed = true;               // the save or load cleans up
+      }
+    }
+    if(onDisk){
+      fileFor(id).delete();
+    }
+    return true;
+  }
+
+  // Pick idle games to spill, least recently used first, until the
+  // ones left in memory fit the budget or are all in use, and mark
+  // them SAVING. The caller writes them out with spill() after letting
+  // go of the lock.
+  private List<Entry> pickVictims(){
+    List<Entry> victims = null;
+    Iterator<Entry> it = this.resident.values().iterator();
+    while(this.residentBytes - this.savingBytes > this.budget && it.hasNext()){
+      Entry entry = it.next();
+      if(entry.users > 0){
+        continue;
+      }
+      it.remove();
+      entry.state = State.SAVING;
+      entry.io = new CompletableFuture<Void>();
+      this.savingBytes += entry.bytes;
+      this.saving++;
+      if(victims == null){
+        victims = new ArrayList<Entry>();
+      }
+      victims.add(entry);
+    }
+    return victims;
+  }
+
+  // Write out games from pickVictims() and drop them from memory. A game
+  // asked for while it was being written stays in memory instead, as
+  // does one which fails to write: the call that caused the spill has
+  // done its own work, so the failure is counted in getSaveFailures()
+  // rather than thrown, and the game is tried again at the next spill.
+  private void spill(List<Entry> victims){
+    if(victims == null){
+      return;
+    }
+    for(Entry entry : victims){
+      RuntimeException failure = null;
+      try{
+        save(entry.id, entry.game);
+      }
+      catch(RuntimeException e){
+        failure = e;
+      }
+      boolean saved = failure == null;
+      boolean keepFile;
+      synchronized(this){
+        if(!saved){
+          this.saveFailures++;
+          this.lastSaveFailure = failure;
+        }
+        this.savingBytes -= entry.bytes;
+        this.saving--;
+        keepFile = saved && !entry.removed && entry.waiters == 0;
+        if(keepFile){
+          entry.state = State.DISK;
+          entry.game = null;
+          this.residentBytes -= entry.bytes;
+          this.evictions++;
+        }
+        else if(entry.removed){
+          this.residentBytes -= entry.bytes;
+        }
+        else{
+          entry.state = State.MEMORY;
+          this.resident.put(entry.id, entry);
+        }
+        entry.io.complete(null);
+      }
+      if(!keepFile){
+        fileFor(entry.id).delete();
+      }
+    }
+  }
+
+  private void save(long id, Game2048 game){
+    try(DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(fileFor(id))))){
+      game.writeTo(out);
+    }
+    catch(IOException e){
+      throw new RuntimeException("Can't spill session "+id, e);
+    }
+  }
+
+  private Game2048 load(long id){
+    File file = fileFor(id);
+    try(DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(file)))){
+      return Game2048.readFrom(in);
+    }
+    catch(IOException e){
+      throw new RuntimeException("Can't reload session "+id, e);
+    }
+  }
+
+  private File fileFor(long id){
+    return new File(this.dir, id + ".game");
+  }
+
+  // Lookups answered from memory
+  public synchronized long getHits(){
+    return this.hits;
+  }
+
+  // Lookups which read a game back from disk
+  public synchronized long getMisses(){
+    return this.misses;
+  }
+
+  // Games written to disk to stay under budget
+  public synchronized long getEvictions(){
+    return this.evictions;
+  }
+
+  // Games which could not be written to disk and stayed in memory
+  public synchronized long getSaveFailures(){
+    return this.saveFailures;
+  }
+
+  // Why the last game which could not be written failed, or null
+  public synchronized RuntimeException getLastSaveFailure(){
+    return this.lastSaveFailure;
+  }
+
+  public synchronized long getResidentBytes(){
+    return this.residentBytes;
+  }
+
+  // Games in memory, including any being written out
+  public synchronized int getResidentCount(){
+    return this.resident.size() + this.saving;
+  }
+
+  // Games on disk, including any being read back
+  public synchronized int getSpilledCount(){
+    return this.entries.size() - this.resident.size() - this.saving;
+  }
+
+  public synchronized String toString(){
+    return String.format("%d games in memory (%d of %d bytes), %d on disk; %d hits, %d misses, %d evictions, %d failed saves",
+                         getResidentCount(), this.residentBytes, this.budget, getSpilledCount(),
+                         this.hits, this.misses, this.evictions, this.saveFailures);
+  }
+
+}
@@ -0,0 +1,199 @@
+// Precomputed results of shifting one line of a board toward its first
+// cell. A line of width W is encoded as an int holding W 4-bit codes,
+// cell k in bits 4*k .. 4*k+3:
+//
+//    0      empty space
+//    1..14  TwoNTile of value 2^code
+//    15     Brick, which never moves and blocks tiles on either side
+//
+// Each table holds one entry per possible encoded line (16^W entries)
+// giving the resulting line, the score gained and whether anything
+// moved. Tables are built on first use and shared by every board
+// with lines of the same width. Lines holding tiles that cannot be
+// encoded, or wider than MAX_WIDTH, go through shiftTiles() instead.
+//
+// A table for width W holds 16^W longs: 512KB for width 4, 8MB for
+// width 5 and 128MB for width 6, paid once per JVM and only when a
+// board with lines of that width shifts. MAX_WIDTH is 6 by default so
+// boards up to 6 wide or tall are covered, and can be lowered to 4 or
+// 5 with -Dgame2048.shiftTableWidth=N to save memory. 6 is also the
+// most it can be: a width 7 table would take 2GB, and 16^8 width 8
+// lines no longer fit an int or an array index, so lines of 7 or more
+// cells always take the shiftTiles() path. Other values of the
+// property are clamped to 4..6.
+public class ShiftTable {
+
+  public static final int EMPTY = 0;
+  public static final int BRICK = 15;
+  public static final int MAX_EXPONENT = 14;
+  public static final int MAX_WIDTH =
+    Math.max(4, Math.min(6, Integer.getInteger("game2048.shiftTableWidth", 6)));
+
+  private static final long MOVED = 1L << 63;
+  private static final ShiftTable[] TABLES = new ShiftTable[MAX_WIDTH+1];
+  private static final Brick BRICK_TILE = new Brick();
+
+  private final int width;
+  private final long[] entries;
+
+  private ShiftTable(int width){
+    this.width = width;
+    this.entries = new long[1 << (4*width)];
+    int[] line = new int[width];
+    for(int code=0; code<this.entries.length; code++){
+      for(int k=0; k<width; k++){
+        line[k] = (code >>> (4*k)) & 0xF;
+      }
+      long result = shiftCodes(line, width);
+      int row = 0;
+      for(int k=0; k<width; k++){
+        row |= line[k] << (4*k);
+      }
+      this.entries[code] = result | row;
+    }
+  }
+
+  // Return the shared table for lines of the given width, building it
+  // if this is the first request. Returns null if the width is larger
+  // than MAX_WIDTH.
+  public static synchronized ShiftTable forWidth(int width){
+    if(width < 1 || width > MAX_WIDTH){
+      return null;
+    }
+    if(TABLES[width] == null){
+      TABLES[width] = new ShiftTable(width);
+    }
+    return TABLES[width];
+  }
+
+  // Return the width of lines handled by this table
+  public int getWidth(){
+    return this.width;
+  }
+
+  // Return the entry for the encoded line; take it apart with
+  // rowOf(), scoreOf() and movedOf()
+  public long lookup(int line){
+    return this.entries[line];
+  }
+
+  // The encoded line after the shift
+  public static int rowOf(long entry){
+    return (int) entry;
+  }
+
+  // The score gained by the shift
+  public static int scoreOf(long entry){
+    return (int) ((entry & ~MOVED) >>> 32);
+  }
+
+  // true if the shift moved or merged any tile
+  public static boolean movedOf(long entry){
+    return (entry & MOVED) != 0;
+  }
+
+  // Return the code for a tile, or -1 if the tile cannot be encoded
+  public static int encode(Tile tile){
+    if(tile == null){
+      return EMPTY;
+    }
+    if(tile instanceof Brick){
+      return BRICK;
+    }
+    if(!(tile instanceof TwoNTile)){
+      return -1;
+    }
+    int value = tile.getScore();
+    if(value < 2 || value > (1 << MAX_EXPONENT) || Integer.bitCount(value) != 1){
+      return -1;
+    }
+    return Integer.numberOfTrailingZeros(value);
+  }
+
+  // Return the tile for a code; null for an empty space
+  public static Tile decode(int code){
+    if(code == EMPTY){
+      return null;
+    }
+    if(code == BRICK){
+      return BRICK_TILE;
+    }
+    return TwoNTile.valueOf(1 << code);
+  }
+
+  // Shift the first n tiles of line toward line[0] in place, merging
+  // tiles that collide. Tiles which are not movable stay put and act
+  // as walls. Returns an entry in the same form as lookup() with a
+  // row of 0.
+  public static long shiftTiles(Tile line[], int n){
+    long score = 0;
+    boolean moved = false;
+    int write = 0;              // next free spot for a moving tile
+    Tile last = null;           // tile at write-1 which may still merge
+    for(int k=0; k<n; k++){
+      Tile t = line[k];
+      if(t == null){
+        continue;
+      }
+      if(!t.isMovable()){
+        write = k+1;
+        last = null;
+        continue;
+      }
+      if(last != null && last.mergesWith(t)){
+        Tile merged = last.merge(t);
+        line[write-1] = merged;
+        line[k] = null;
+        score += merged.getScore();
+        moved = true;
+        last = null;
+        continue;
+      }
+      if(k != write){
+        line[write] = t;
+        line[k] = null;
+        moved = true;
+      }
+      last = t;
+      write++;
+    }
+    return (score << 32) | (moved ? MOVED : 0L);
+  }
+
+  // shiftTiles() for a line of codes. Two tiles of the largest
+  // exponent do not merge as their result has no code.
+  private static long shiftCodes(int line[], int n){
+    long score = 0;
+    boolean moved = false;
+    int write = 0;
+    int last = -1;
+    for(int k=0; k<n; k++){
+      int code = line[k];
+      if(code == EMPTY){
+        continue;
+      }
+      if(code == BRICK){
+        write = k+1;
+        last = -1;
+        continue;
+      }
+      if(last >= 0 && line[last] == code && code < MAX_EXPONENT){
+        line[last] = code+1;
+        line[k] = EMPTY;
+        score += 1 << (code+1);
+        moved = true;
+        last = -1;
+        continue;
+      }
+      if(k != write){
+        line[write] = code;
+        line[k] = EMPTY;
+        moved = true;
+      }
+      last = write;
+      write++;
+    }
+    return (score << 32) | (moved ? MOVED : 0L);
+  }
+
+}
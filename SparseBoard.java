@@ -2,22 +2,34 @@ import java.util.*;
 import java.lang.*;
 // Tracks the positions of an arbitrary 2D grid of Tiles.  SparseBoard
 // uses internal linked lists of tile coordinates to track only the
-// tiles that are non-empty.  A full-credit implementation will make
-// use of a completed WLinkedList.
+// tiles that are non-empty.  Every node is on two lists at once: the
+// list of its row, linked left and right, and the list of its column,
+// linked up and down, each with its own head and tail.
 public class SparseBoard extends Board {
 	
 	private int r;				//number of rows
 	private int c;				//number of columns
 	private int free;			//the number of free spaces
 	private boolean shifted;	//tracks if the last move shifted tiles or not
-	private WLinkedList<TileNode> rowMajor;	//tracks the board by rows
-	private WLinkedList<TileNode> colMajor;	//tracks the board by columns
+	private TileNode rowHead[];		//first node of each row
+	private TileNode rowTail[];		//last node of each row
+	private TileNode colHead[];		//first node of each column
+	private TileNode colTail[];		//last node of each column
+	private FreeSpaceIndex freeIndex;		//which spots are free, row by row
+	private LongHashMap<TileNode> bySpot;	//finds the node at a spot
+	private int pairs;			//side-by-side tiles which merge with each other
+	private long hash;			//Zobrist hash, kept by every change
+	private long[] changedRows;	//rows changed since clearChangedRows(), or null
+
+	private static final int NODE_BYTES = 40;	//header, two ints and five references
 	
 	public class TileNode
   	    {
   	    	private int row;
   	    	private int column;
   	    	private Tile ti;
+  	    	private TileNode left, right;	//neighbours along the row
+  	    	private TileNode up, down;		//neighbours along the column
   	  
   	    	public TileNode(int r, int c, Tile t)
   	    	{
@@ -63,8 +75,12 @@ public class SparseBoard extends Board {
   	  this.c = cols;
   	  this.free = r*c;
   	  this.shifted = false;
-  	  this.rowMajor = new WLinkedList<TileNode>();
-  	  this.colMajor = new WLinkedList<TileNode>();
+  	  this.rowHead = new TileNode[rows];
+  	  this.rowTail = new TileNode[rows];
+  	  this.colHead = new TileNode[cols];
+  	  this.colTail = new TileNode[cols];
+  	  this.freeIndex = new FreeSpaceIndex(rows*cols);
+  	  this.bySpot = new LongHashMap<TileNode>();
   }
 
   // Build a board that copies the 2D array of tiles provided Tiles
@@ -73,65 +89,34 @@ public class SparseBoard extends Board {
   // which are indicated by nulls.
   public SparseBoard(Tile t[][])
   {
-  	   
-  	  //grabs the row and column count of the array
-  	  this.r = t.length;
-  	  this.c = t[0].length;
-  	  //sets up the other class fields
-  	  this.shifted = false;
-  	  this.rowMajor = new WLinkedList<TileNode>();
-  	  this.colMajor = new WLinkedList<TileNode>();
-  	  this.free = 0;
-  	  
-  	  //a temporary tile is created for this method
-  	  Tile temp;
-  	  TileNode tn;
-  	  
-  	  //moves through the list t, 
-  	  //	turns tiles into nodes, and adds them to rowMajor
+  	  this(t.length, t[0].length);
+
+  	  //moves through the array t row by row, turning tiles into nodes
+  	  //	and adding them to the end of their row and column
   	  for(int row = 0; row<=(t.length-1); row++)
   	  {
   	  	  for(int col = 0; col<=(t[0].length-1); col++)
   	  	  {
-  	  	  	  //check to see if this spot is empty
-  	  	  	  if(t[row][col]==null)
-  	  	  	  	  this.free++;
-  	  	  	  else
-  	  	  	  {
-  	  	  	  	  //grabbing the tile from list t
-  	  	  	  	  temp = t[row][col];
-  	  	  	  	  //creating a node list from the grabed tile's score and location
-  	  	  	  	  tn = new TileNode(row, col, temp);
-  	  	  	  	  //adds the node list to rowMajor
-  	  	  	  	  this.rowMajor.add(tn);
-  	  }	  }	  }
-  	  	  
-  	  //moves through the list t, 
-  	  //	turns tiles into nodes, and adds them to colMajor
-  	  for(int col = 0; col<=(t[0].length-1); col++)
-  	  {
-  	  	  for(int row = 0; row<=(t.length-1); row++)
-  	  	  {
-  	  	  	  //check to see if this spot is empty
-  	  	  	  if(t[row][col]==null)
-  	  	  	  	  this.free++;
-  	  	  	  else
+  	  	  	  if(t[row][col]!=null)
   	  	  	  {
-  	  	  	  	  //grabbing the tile from list t
-  	  	  	  	  temp = t[row][col];
-  	  	  	  	  
-  	  	  	  	  //creating a node list from the grabed tile's score and location
-  	  	  	  	  tn = new TileNode(row, col, temp);
-  	  	  	  	  //adds the node list to colMajor
-  	  	  	  	  this.colMajor.add(tn);
-  	  }	  }	  }
-  	  
+  	  	  	  	  TileNode tnode = new TileNode(row, col, t[row][col]);
+  	  	  	  	  appendToRow(tnode);
+  	  	  	  	  appendToCol(tnode);
+  	  	  	  	  this.bySpot.put(spotOf(tnode), tnode);
+  	  	  	  	  this.freeIndex.setFreeBit(row*this.c+col, false);
+  	  	  	  	  this.hash ^= zobristKey(tnode);
+  	  	  	  	  this.free--;
+  	  	  	  }
+  	  	  }
+  	  }
+  	  this.freeIndex.recount();
+  	  this.pairs = countPairs();
   }
 
   // Create a distinct copy of the board including its internal tile
   // positions and any other state
   // 
-  // TARGET COMPLEXITY: O(T)
+  // TARGET COMPLEXITY: O(T+R+C)
   // T: the number of non-empty tiles in the board
   public Board copy()
   {
@@ -139,9 +124,23 @@ public class SparseBoard extends Board {
   	  SparseBoard newBoard = new SparseBoard(this.r, this.c);
   	  //copy's over the fields
   	  newBoard.shifted = this.shifted;
-  	  newBoard.rowMajor = this.rowMajor;
-  	  newBoard.colMajor = this.colMajor;
   	  newBoard.free = this.free;
+  	  newBoard.pairs = this.pairs;
+  	  newBoard.hash = this.hash;
+  	  newBoard.freeIndex = this.freeIndex.copy();
+  	  newBoard.bySpot = new LongHashMap<TileNode>(this.bySpot.size());
+  	  //the nodes are mutable so each one is copied; going row by row
+  	  //	keeps every column in order too
+  	  for(int row = 0; row<this.r; row++)
+  	  {
+  	  	  for(TileNode tnode = this.rowHead[row]; tnode!=null; tnode = tnode.right)
+  	  	  {
+  	  	  	  TileNode newNode = new TileNode(tnode.getRow(), tnode.getCol(), tnode.getTile());
+  	  	  	  newBoard.appendToRow(newNode);
+  	  	  	  newBoard.appendToCol(newNode);
+  	  	  	  newBoard.bySpot.put(spotOf(newNode), newNode);
+  	  	  }
+  	  }
   	  //returns the copy board
   	  return newBoard;
   }
@@ -180,87 +179,47 @@ public class SparseBoard extends Board {
   // runtime exception with a useful error message if an out of bounds
   // index is requested.
   // 
-  // TARGET COMPLEXITY: O(T)
-  // T: The number of non-empty tiles in the board 
+  // TARGET COMPLEXITY: O(1) expected, by way of the bySpot index
   public Tile tileAt(int i, int j) throws RuntimeException
   {
-  	  if((i>this.r)||(j>this.c))
+  	  if((i<0)||(i>=this.r)||(j<0)||(j>=this.c))
   	  	  throw new RuntimeException("Out of bounds!");
-  	  
-  	  //utilize list itorator to minimize target complextity
-  	  
-  	  //if it is closer to zero row-wise rather than column-wise
-  	  //	OR if the two coordinates are the same
-  	  if((i<j)||(i==j))
-  	  {  
-  	  	  //checks how close i is to the last row
-  	  	  int compare = this.r - i;
-  	  	  //if i is closer to the last row than to the first, iterate backwards
-  	  	  if(i>compare)
-  	  	  {
-  	  	  	  //starts the iterator at the end and works backwards
-  	  	  	  ListIterator<TileNode> iter = rowMajor.listIterator(rowMajor.size()-1);
-  	  	  	  while(iter.hasPrevious())
-  	  	  	  {
-  	  	  	  	  //grabs the node
-  	  	  	  	  TileNode temp = iter.previous();
-  	  	  	  	  //checks the node's coordinates
-  	  	  	  	  if((temp.getRow()==i)&&(temp.getCol()==j))
-  	  	  	  	  	  return temp.getTile();
-  	  	  	  }
-  	  	  }
-  	  	  //if i is closer to the first row than to the last, iterate forwards
-  	  	  else
-  	  	  {
-  	  	  	  //starts the iterator at the beginning and works forwards
-  	  	  	  ListIterator<TileNode> iter = rowMajor.listIterator();
-  	  	  	  while(iter.hasNext())
-  	  	  	  {
-  	  	  	  	  //grabs the node
-  	  	  	  	  TileNode temp = iter.next();
-  	  	  	  	  //checks the node's coordinates
-  	  	  	  	  if((temp.getRow()==i)&&(temp.getCol()==j))
-  	  	  	  	  	  return temp.getTile();
-  	  	  	  }	  
-  	  	  }
-  	  }
 
-  	  if(j<i)
-  	  {
-  	  	  //checks how close i is to the last row
-  	  	  int compare = this.c - j;
-  	  	  //if i is closer to the last row than to the first, iterate backwards
-  	  	  if(j>compare)
-  	  	  {
-  	  	  	  //starts the iterator at the end and works backwards
-  	  	  	  ListIterator<TileNode> iter = colMajor.listIterator(colMajor.size()-1);
-  	  	  	  while(iter.hasPrevious())
-  	  	  	  {
-  	  	  	  	  //grabs the node
-  	  	  	  	  TileNode temp = iter.previous();
-  	  	  	  	  //checks the node's coordinates
-  	  	  	  	  if((temp.getRow()==i)&&(temp.getCol()==j))
-  	  	  	  	  	  return temp.getTile();
-  	  	  	  }
-  	  	  }
-  	  	  //if i is closer to the first row than to the last, iterate forwards
-  	  	  else
-  	  	  {
-  	  	  	  //starts the iterator at the beginning and works forwards
-  	  	  	  ListIterator<TileNode> iter = colMajor.listIterator();
-  	  	  	  while(iter.hasNext())
-  	  	  	  {
-  	  	  	  	  //grabs the node
-  	  	  	  	  TileNode temp = iter.next();
-  	  	  	  	  //checks the node's coordinates
-  	  	  	  	  if((temp.getRow()==i)&&(temp.getCol()==j))
-  	  	  	  	  	  return temp.getTile();
-  	  	  	  }	  
-  	  	  }
-  	  }
+  	  TileNode tnode = this.bySpot.get((long)i*this.c+j);
+  	  if(tnode==null)
+  	  	  return null;
+  	  return tnode.getTile();
+  }
+
+  // Fill row with the tiles of row i, null for free spaces
+  // TARGET COMPLEXITY: O(C)
+  public void readRow(int i, Tile[] row)
+  {
+  	  Arrays.fill(row, null);
+  	  for(TileNode tnode = this.rowHead[i]; tnode!=null; tnode = tnode.right)
+  	  	  row[tnode.getCol()] = tnode.getTile();
+  }
 
-  	  //if a tile was never returned, return null
-  	  return null;
+  // Start recording the rows every change lands in
+  public void clearChangedRows()
+  {
+  	  if(this.changedRows==null)
+  	  	  this.changedRows = new long[(this.r+63)>>>6];
+  	  else
+  	  	  Arrays.fill(this.changedRows, 0L);
+  }
+
+  // The rows changed since clearChangedRows(), or null
+  public long[] changedRows()
+  {
+  	  return this.changedRows;
+  }
+
+  //Records that a tile in the row changed, if rows are being recorded
+  private void rowChanged(int row)
+  {
+  	  if(this.changedRows!=null)
+  	  	  this.changedRows[row>>>6] |= 1L<<row;
   }
 
   // true if the last shift operation moved any tile
@@ -271,77 +230,107 @@ public class SparseBoard extends Board {
   	  return this.shifted;
   }
 
+  // Zobrist hash of the board, kept by every change
+  // TARGET COMPLEXITY: O(1)
+  public long zobristHash()
+  {
+  	  return this.hash;
+  }
+
+  // Rough heap footprint in bytes: a node per tile, the list heads and
+  // tails, the spot map and the free space index
+  // TARGET COMPLEXITY: O(1)
+  public long estimatedBytes()
+  {
+  	  long nodes = (long)(this.r*this.c - this.free) * NODE_BYTES;
+  	  return 64 + 2*arrayBytes(this.r, 4) + 2*arrayBytes(this.c, 4) + nodes
+  	  	  + this.bySpot.estimatedBytes() + this.freeIndex.estimatedBytes();
+  }
+
+  // true if no shift can change the board: every spot is full and no
+  // two side-by-side tiles merge. Spawns update the pair count and
+  // shifts recount it as they relink the lists, so this is O(1).
+  // TARGET COMPLEXITY: O(1)
+  public boolean noMovesLeft()
+  {
+  	  return (this.free==0)&&(this.pairs==0);
+  }
+
   // Return true if a shift left, right, up, or down would merge any
   // tiles. If no shift would cause any tiles to merge, return false.
   // The inability to merge anything is part of determining if the
   // game is over.
   // 
-  // TARGET COMPLEXITY: O(T)
+  // TARGET COMPLEXITY: O(T+R+C)
   // T: The number of non-empty tiles in the board 
   public boolean mergePossible()
   {
-  	  //iterRow checks for merges among tiles in the same row
-  	  ListIterator<TileNode> iterRow = rowMajor.listIterator();
-  	  //iterCol checks fer merges among tiles in the same column
-  	  ListIterator<TileNode> iterCol = colMajor.listIterator();
-  	  
-  	  //these track the current row and column
-  	  int currentRow = -1;
-  	  int currentCol = -1;
-  	  
-  	  //these tiles save the previous tiles to compare with the current tile
-  	  Tile compareRow = new TwoNTile(0);
-  	  Tile compareCol = new TwoNTile(0);
-  	  
-  	  //traversing through the iterators...
-  	  while(iterRow.hasNext())
+  	  //neighbours along a row can merge if nothing sits between them
+  	  for(int row = 0; row<this.r; row++)
   	  {
-  	  	  //grabs the nodes from the iterator
-  	  	  TileNode rowNode = iterRow.next();
-  	  	  TileNode colNode = iterCol.next();
-  	  	  
-  	  	  //grabs the tiles from the nodes
-  	  	  Tile currentRowTile = rowNode.getTile();
-  	  	  Tile currentColTile = colNode.getTile();
-  	  	  
-//IF----------------
-  	  	  //if this is a new row
-  	  	  if(rowNode.getRow()!=currentRow)
-  	  	  {
-  	  	  	  //sets the current tile as the tile to compare to
-  	  	  	  compareRow = currentRowTile;
-  	  	  }
-  	  	  //if this is a new column
-  	  	  if(colNode.getCol()!=currentCol)
-  	  	  {
-  	  	  	  //sets the current tile as the tile to compare to
-  	  	  	  compareCol = currentColTile;
-  	  	  }
-//ELSE---------------
-  	  	  //if this isn't the first tile of a new row...
-  	  	  if(rowNode.getRow()==currentRow)
+  	  	  for(TileNode tnode = this.rowHead[row]; tnode!=null; tnode = tnode.right)
   	  	  {
-  	  	  	  //returns true if the current and previous tiles can merge
-  	  	  	  if(compareRow.mergesWith(currentRowTile))
+  	  	  	  if((tnode.right!=null)&&(tnode.getTile().mergesWith(tnode.right.getTile())))
   	  	  	  	  return true;
-  	  	  	  //otherwise, sets the current tile as the tile to compare to
-  	  	  	  compareRow = currentRowTile;
   	  	  }
-  	  	  //if this isn't the first tile of a new column...
-  	  	  if(colNode.getCol()==currentCol)
+  	  }
+  	  //and the same down each column
+  	  for(int col = 0; col<this.c; col++)
+  	  {
+  	  	  for(TileNode tnode = this.colHead[col]; tnode!=null; tnode = tnode.down)
   	  	  {
-  	  	  	  //returns true if the current and previous tiles can merge
-  	  	  	  if(compareCol.mergesWith(currentColTile))
+  	  	  	  if((tnode.down!=null)&&(tnode.getTile().mergesWith(tnode.down.getTile())))
   	  	  	  	  return true;
-  	  	  	  //otherwise, sets the current tile as the tile to compare to
-  	  	  	  compareCol = currentColTile;
-  	  	  } 
+  	  	  }
   	  }
-  	  
+
   	  //if no possible merges were found
   	  return false;
   }
 
+  // What shifting in each direction would score and whether it would
+  // move anything, found by walking each row and column list once
+  // without changing the board. A gap between neighbouring nodes, or
+  // between a node and the end of its line, counts as empty space.
+  // 
+  // TARGET COMPLEXITY: O(T+R+C)
+  public MovePreview previewMoves()
+  {
+  	  MovePreview.LineScan rows = new MovePreview.LineScan();
+  	  for(int row = 0; row<this.r; row++)
+  	  {
+  	  	  rows.startLine();
+  	  	  int spot = 0;
+  	  	  for(TileNode tnode = this.rowHead[row]; tnode!=null; tnode = tnode.right)
+  	  	  {
+  	  	  	  if(tnode.getCol()>spot)
+  	  	  	  	  rows.empty();
+  	  	  	  rows.tile(tnode.getTile());
+  	  	  	  spot = tnode.getCol()+1;
+  	  	  }
+  	  	  if((spot<this.c)&&(this.rowHead[row]!=null))
+  	  	  	  rows.empty();
+  	  	  rows.endLine();
+  	  }
+  	  MovePreview.LineScan cols = new MovePreview.LineScan();
+  	  for(int col = 0; col<this.c; col++)
+  	  {
+  	  	  cols.startLine();
+  	  	  int spot = 0;
+  	  	  for(TileNode tnode = this.colHead[col]; tnode!=null; tnode = tnode.down)
+  	  	  {
+  	  	  	  if(tnode.getRow()>spot)
+  	  	  	  	  cols.empty();
+  	  	  	  cols.tile(tnode.getTile());
+  	  	  	  spot = tnode.getRow()+1;
+  	  	  }
+  	  	  if((spot<this.r)&&(this.colHead[col]!=null))
+  	  	  	  cols.empty();
+  	  	  cols.endLine();
+  	  }
+  	  return new MovePreview(rows, cols);
+  }
+
   // Add a the given tile to the board at the "freeL"th free space.
   // Free spaces are numbered 0,1,... from left to right accross the
   // columns of the zeroth row, then the first row, then the second
@@ -372,170 +361,28 @@ public class SparseBoard extends Board {
   // Throw a runtime exception with an informative error message if a
   // location that does not exist is requested.
   // 
-  // TARGET COMPLEXITY: O(T+max(R,C))
-  // T: the number of non-empty tiles in the board
+  // The spot itself is found in O(log(R*C)) by the free space index;
+  // the node is then linked into its own row and column only.
+  // 
+  // TARGET COMPLEXITY: O(R+C)
   public void addTileAtFreeSpace(int freeL, Tile tile)
   {
   	  //stops it if there aren't any free spaces available
   	  if(this.free == 0)
   	  	  throw new RuntimeException("There are no free spaces on the board!");
-  	  if(freeL>this.free)
+  	  if((freeL<0)||(freeL>=this.free))
   	  	  throw new RuntimeException("Spot "+freeL+" isn't free!");
-  	  
-  	  //sets up the iterator to traverse through the board
-  	  ListIterator<TileNode> iter = this.rowMajor.listIterator();
-  	  //found breaks the while loop once the free spot is found (true)
-  	  boolean found = false;
-  	  //freeCount tracks what number of free spots have been found
-  	  int freeCount = -1;
-  	  //tracks the initial or former row and column
-  	  int preRow = 0;
-  	  int preCol = 0;
-  	  //tracks the tile's current row and column
-  	  int currentRow = 0;
-  	  int currentCol = 0;
-  	  //once found, the freespots coords will be stored for colMajor to use
-  	  int rowCM = 0;
-  	  int colCM = 0;
-  	  
-  	  while(iter.hasNext())
-  	  {
-  	  	  //grabs the current node
-  	  	  TileNode tnode = iter.next();
-  	  	  
-  	  	  //grabs the current coordinates
-  	  	  currentRow = tnode.getRow();
-  	  	  currentCol = tnode.getCol();
-  	  	  
-  	  	  
-  	  	  //catches freespaces from any empty rows
-  	  	  //	AND catches any remaining freespaces from previous nonempty row
-  	  	  while(preRow<currentRow)
-  	  	  {	
-  	  	  	  	//add the new free spaces
-  	  	  	  	int freeAdd = (this.c-1)-preCol;
-  	  	  	  	freeCount += freeAdd;
-  	  	  	  	//if the freeCount reaches freeL
-  	  	  	  	if(freeCount>=freeL)
-  	  	  	  	{
-  	  	  	  		rowCM = preRow;
-  	  	  	  		//colCM = last column - amount over
-  	  	  	  		colCM = (this.c-1)-(freeCount-freeL);
-  	  	  	  		//creates the new node and adds it to rowMajor
-					TileNode newNode = new TileNode(rowCM, colCM, tile);
-					iter.add(newNode);  	  	  	  		
-  	  	  	  		found = true;
-  	  	  	  	}
-  	  	  	  	if(found)
-  	  	  	  		break;
-  	  	  	  	
-  	  	  	  	//after freeCount updates, preCol and preRow are adjusted
-  	  	  	  	//		for the next loop
-  	  	  	  	preCol = 0;
-  	  	  	  	preRow++;
-  	  	  }
-  	  	  //catches any free spaces in the same row ahead of the current tile
-  	  	  //	AND catches any freespaces between tiles
-  	  	  if(preRow==currentRow)
-  	  	  {
-  	  	  	  	//add the new free spaces
-  	  	  	  	int freeAdd = currentCol-preCol;
-  	  	  	  	freeCount += freeAdd;
-  	  	  	  	//if the freeCount reaches freeL
-  	  	  	  	if(freeCount>=freeL)
-  	  	  	  	{
-  	  	  	  		rowCM = preRow;
-  	  	  	  		//colCM = last column - amount over
-  	  	  	  		colCM = currentCol-(freeCount-freeL);
-  	  	  	  		//creates the new node and adds it to rowMajor
-					TileNode newNode = new TileNode(rowCM, colCM, tile);
-					iter.add(newNode);  	  	  	  		
-  	  	  	  		found = true;
-  	  	  	  	}
-  	  	  }
-  	  	  //counts the free spaces after the last tile
-  	  	  if(iter.hasNext()==false)
-  	  	  {
-  	  	  	  while(currentRow<=(this.r-1))
-  	  	  	  {	
-  	  	  	  	//add the new free spaces
-  	  	  	  	int freeAdd = (this.c-1)-preCol;
-  	  	  	  	freeCount += freeAdd;
-  	  	  	  	//if the freeCount reaches freeL
-  	  	  	  	if(freeCount>=freeL)
-  	  	  	  	{
-  	  	  	  		rowCM = preRow;
-  	  	  	  		//colCM = last column - amount over
-  	  	  	  		colCM = (this.c-1)-(freeCount-freeL);
-  	  	  	  		//creates the new node and adds it to rowMajor
-					TileNode newNode = new TileNode(rowCM, colCM, tile);
-					iter.add(newNode);  	  	  	  		
-  	  	  	  		found = true;
-  	  	  	  	}
-  	  	  	  	if(found)
-  	  	  	  		break;
-  	  	  	  	
-  	  	  	  	//after freeCount updates, preCol and preRow are adjusted
-  	  	  	  	//		for the next loop
-  	  	  	  	preCol = 0;
-  	  	  	  	currentRow++;
-  	  	  	  }
-  	  	  }
-  	  	  
-  	  	  //sets the previous coords up to compare for the next loop/node
-  	  	  preRow = currentRow;
-  	  	  preCol = currentCol;
 
-  	  	  //breaks the loop is the freespot is found
-  	  	  if(found==true)
-  	  	  	  break;
-  	  }
-  	  
-  	  //updates colMajor
-  	  if(found==true)
-  	  {
-  	  	  boolean placed = false;
-  	  	  TileNode newNode = new TileNode(rowCM, colCM, tile);
-  	  	  ListIterator<TileNode> iterCol = this.colMajor.listIterator();
-  	  	  //traversing through colMajor
-  	  	  while(iterCol.hasNext())
-  	  	  {
-  	  	  	  //grabs the node
-  	  	  	  TileNode tnode = iterCol.next();
-  	  	  	  //grabs the coords
-  	  	  	  currentRow = tnode.getRow();
-  	  	  	  currentCol = tnode.getCol();
-  	  	  	  
-  	  	  	  //if the current column is before the freespace, move to next node
-  	  	  	  if(colCM>currentCol)
-  	  	  	  	  continue;
-  	  	  	  //if the current column is the correct one, start checking rows
-  	  	  	  if(colCM==currentCol)
-  	  	  	  {
-  	  	  	  	  //move on to next node if the currentRow is small
-  	  	  	  	  if(rowCM>currentRow)
-  	  	  	  	  	  continue;
-  	  	  	  	  //if the node past the freespot is reached, insert behind
-  	  	  	  	  if(rowCM<currentRow)
-  	  	  	  	  {
-  	  	  	  	  	  tnode = iterCol.previous();
-  	  	  	  	  	  iterCol.add(newNode);
-  	  	  	  	  	  placed = true;
-  	  	  	  	  }
-  	  	  	  }
-  	  	  	  if(placed==true)
-  	  	  	  	  break;
-  	  	  	  //if the freespace column is passed over, moves back and inserts
-  	  	  	  if(colCM<currentCol)
-  	  	  	  {
-  	  	  	  	  	tnode = iterCol.previous();
-  	  	  	  	  	iterCol.add(newNode);
-  	  	  	  	  	placed = true;
-  	  	  	  }
-  	  	  	  if(placed==true)
-  	  	  	  	  break;
-  	  	  }
-  	  }
+  	  int target = this.freeIndex.select(freeL);
+  	  this.freeIndex.markFilled(target);
+  	  TileNode newNode = new TileNode(target/this.c, target%this.c, tile);
+  	  this.bySpot.put(spotOf(newNode), newNode);
+  	  insertIntoRow(newNode);
+  	  insertIntoCol(newNode);
+  	  this.pairs += pairsAround(newNode);
+  	  this.hash ^= zobristKey(newNode);
+  	  this.free--;
+  	  rowChanged(newNode.getRow());
   }
 
   // Pretty-printed version of the board. Use the format "%4s " to
@@ -546,97 +393,27 @@ public class SparseBoard extends Board {
   // C: number of columns
   public String toString()
   {
-  	  //sets up the iterator to traverse through the board
-  	  ListIterator<TileNode> iter = this.rowMajor.listIterator();
-  	  //freeCount tracks what number of free spots have been found
-  	  int freeCount = 0;
-  	  //tracks the initial or former row and column
-  	  int preRow = 0;
-  	  int preCol = 0;
-  	  //tracks the tile's current row and column
-  	  int currentRow = 0;
-  	  int currentCol = 0;
-  	  //set up string
   	  StringBuilder stBu = new StringBuilder();
-  	  String s = " ";
-  	  
-  	  
-  	  while(iter.hasNext())
+  	  //walks each row's list alongside the grid, printing a tile
+  	  //	whenever the next node sits at the current spot
+  	  for(int row = 0; row<this.r; row++)
   	  {
-  	  	  //grabs the current node
-  	  	  TileNode tnode = iter.next();
-  	  	  
-  	  	  //grabs the current coordinates
-  	  	  currentRow = tnode.getRow();
-  	  	  currentCol = tnode.getCol();
-  	  	  
-  	  	  
-  	  	  //prints freespaces from any empty rows above the current tile
-  	  	  //	AND prints any remaining freespaces from previous nonempty row
-  	  	  while(preRow<currentRow)
-  	  	  {	
-  	  	  	  	//add the new free spaces
-  	  	  	  	freeCount = (this.c-1)-preCol;
-  	  	  	  	for(int i=0; i<=freeCount; i++)
-  	  	  	  	{
-  	  	  	  		s = String.format("%4s ", "-");
-  	  	  	  		stBu.append(s);
-  	  	  	  	}
-  	  	  	  	
-  	  	  	  	//after freeCount updates, preCol and preRow are adjusted
-  	  	  	  	//		for the next loop
-  	  	  	  	preCol = 0;
-  	  	  	  	preRow++;
-  	  	  	  	stBu.append("\n");
-  	  	  }
-  	  	  //prints any free spaces in the same row ahead of the current tile,
-  	  	  //	prints the tile,
-  	  	  //	AND prints any freespaces between tiles
-  	  	  if(preRow==currentRow)
+  	  	  TileNode next = this.rowHead[row];
+  	  	  for(int col = 0; col<this.c; col++)
   	  	  {
-  	  	  	  	//add the new free spaces
-  	  	  	  	freeCount = currentCol-preCol;
-  	  	  	  	for(int i=0; i<=freeCount; i++)
-  	  	  	  	{
-  	  	  	  		s = String.format("%4s ", "-");
-  	  	  	  		stBu.append(s);
-  	  	  	  	}
-  	  	  	  	//the add the tile
-  	  	  	  	int val = tnode.getTile().getScore();
-  	  	  	  	s = String.format("%4s ", String.valueOf(val));
-  	  	  	  	stBu.append(s);
-
-  	  	  }
-  	  	  //prints the free spaces after the last tile
-  	  	  if(iter.hasNext()==false)
-  	  	  {
-  	  	  	  while(currentRow<=(this.r-1))
-  	  	  	  {	
-  	  	  	  	//add the new free spaces
-  	  	  	  	freeCount = (this.c-1)-preCol;
-  	  	  	  	for(int i=0; i<=freeCount; i++)
-  	  	  	  	{
-  	  	  	  		s = String.format("%4s ", "-");
-  	  	  	  		stBu.append(s);
-  	  	  	  	}
-  	  	  	  	
-  	  	  	  	//after freeCount updates, preCol and preRow are adjusted
-  	  	  	  	//		for the next loop
-  	  	  	  	preCol = 0;
-  	  	  	  	currentRow++;
-  	  	  	  	stBu.append("\n");
+  	  	  	  if((next!=null)&&(next.getCol()==col))
+  	  	  	  {
+  	  	  	  	  stBu.append(String.format("%4s ", String.valueOf(next.getTile().getScore())));
+  	  	  	  	  next = next.right;
   	  	  	  }
+  	  	  	  else
+  	  	  	  	  stBu.append(String.format("%4s ", "-"));
   	  	  }
-  	  	  
-  	  	  //sets the previous coords up to compare for the next loop/node
-  	  	  preRow = currentRow;
-  	  	  preCol = currentCol;
+  	  	  stBu.append("\n");
   	  }
-
-  	  //the string version of the board is completed and returned
   	  return stBu.toString();
   }
-  
+
   public String debugString()
   {
   	  return "I'm not used.";
@@ -658,406 +435,279 @@ public class SparseBoard extends Board {
   // R: number of rows
   // C: number of columns
   public int shiftLeft()
-  {  
+  {
+  	  return shiftLines(true, true);
+  }
+
+  public int shiftRight()
+  {
+  	  return shiftLines(true, false);
+  }
+
+  public int shiftUp()
+  {
+  	  return shiftLines(false, true);
+  }
+
+  public int shiftDown()
+  {
+  	  return shiftLines(false, false);
+  }
+
+  //Shifts every row (horizontal) or column toward its start (forward)
+  //	or its end. Each line is walked through its own list, so empty
+  //	lines cost one check. Moving along a row changes which column a
+  //	node is in, so the crossing lists are emptied first and every
+  //	surviving node is appended to its new crossing line as it is
+  //	placed; lines are handled in order, which keeps those lists
+  //	sorted without any searching.
+  private int shiftLines(boolean horizontal, boolean forward)
+  {
   	  this.shifted = false;
-  	  
   	  //tracks points scored during shift
   	  int shiftScore = 0;
-  	  //tracks the free column space and the current row
-  	  int freeC = 0;
-  	  int currentRow = -1;
+  	  int lines = horizontal ? this.r : this.c;
+  	  int step = forward ? 1 : -1;
+  	  int lineStart = forward ? 0 : (horizontal ? this.c : this.r)-1;
 
-  	  
-	//creates the iterator through rowMajor
-  	  ListIterator<TileNode> iter = rowMajor.listIterator();
-  	  Tile prevTile = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP LEFT and finishing at the BOTTOM RIGHT
-  	  while(iter.hasNext())					
-  	  {	  	  
-  	  	  TileNode tnode = iter.next();
-  	  	  
-  	  	  //if this is a new row
-  	  	  if(tnode.getRow()!=currentRow)
-  	  	  {
-  	  	  	  //this deals with the first tile of a new row
-  	  	  	  //currentRow is updated
-  	  	  	  currentRow = tnode.getRow();
-  	  	  	  //the tile's value is stored for comparison
-  	  	  	  prevTile = tnode.getTile();
-  	  	  	  //the free column spot is reset
-  	  	  	  freeC = 0;
-  	  	  	  
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getCol()>=freeC)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setCol(freeC);
-  	  	  	  	  freeC++;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeC = tnode.getCol()+1;
-  	  	  }
-  	  	  //if this isn't the first tile in the current row
-  	  	  else
-  	  	  {
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getCol()>=freeC)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setCol(freeC);
-  	  	  	  	  freeC++;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeC = tnode.getCol()+1;
-  	  	  	  
-  	  	  	  //checks if the current and previous tile can merge
-  	  	  	  if(prevTile.mergesWith(tnode.getTile()))
-  	  	  	  {
-  	  	  	  	  //this assumes that the two tiles can merge
-  	  	  	  	  //a new tile is created to store the merge
-  	  	  	  	  Tile newTile = new TwoNTile(0);
-  	  	  	  	  //the merge is attempted
-  	  	  	  	  try{
-  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  newTile = prevTile.merge(tnode.getTile());
-  	  	  	  	  }
-  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  
-  	  	  	  	  //collects the points earned
-  	  	  	  	  shiftScore += newTile.getScore();
-  	  	  	  	  
-  	  	  	  	  //the iterator is moved back to the previous node
-  	  	  	  	  TileNode mergeSpot = iter.previous();
-  	  	  	  	  //the previous node's tile is updated
-  	  	  	  	  mergeSpot.setTile(newTile);
-  	  	  	  	  //moves the iterator to the current node
-  	  	  	  	  iter.next();
-  	  	  	  	  //deletes the current node
-  	  	  	  	  iter.remove();
-  	  	  	  	  
-  	  	  	  	  //freeC is adjusted
-  	  	  	  	  freeC=mergeSpot.getCol()+1;
-  	  	  	  } 
-  	  	  }
+  	  if(horizontal)
+  	  {
+  	  	  Arrays.fill(this.colHead, null);
+  	  	  Arrays.fill(this.colTail, null);
   	  }
-//-------------------------------------------------------------
-  	  //colMajor is updated to match the nodes of rowMajor
-  	  WLinkedList builder[] = new WLinkedList[this.c];
-  	  ListIterator<TileNode> iterate = rowMajor.listIterator();
-  	  while(iterate.hasNext())
+  	  else
   	  {
-  	  	  TileNode currentNode = iterate.next();
-  	  	  builder[currentNode.getCol()].addLast(currentNode);
+  	  	  Arrays.fill(this.rowHead, null);
+  	  	  Arrays.fill(this.rowTail, null);
   	  }
-  	  colMajor = WLinkedList.coalesce(builder);
-//------------------------------------------------------------
-  	  return shiftScore;  
-  }
-//------------------------------------------------------------------------------
-//------------------------------------------------------------------------------
-  public int shiftRight()
-  {
-  	  this.shifted = false;
-  	  
-  	  //tracks points scored during shift
-  	  int shiftScore = 0;
-  	  //tracks the free column space and the current row
-  	  int freeC = this.c-1;
-  	  int currentRow = -1;
 
-  	  
-  	  //creates the iterator through rowMajor
-  	  ListIterator<TileNode> iter = rowMajor.listIterator(rowMajor.size()-1);
-  	  Tile prevTile = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP RIGHT and finishing at the BOTTOM LEFT
-  	  while(iter.hasPrevious())					
-  	  {	  	  
-  	  	  TileNode tnode = iter.previous();
-  	  	  
-  	  	  //if this is a new row
-  	  	  if(tnode.getRow()!=currentRow)
+  	  for(int line = 0; line<lines; line++)
+  	  {
+  	  	  //the spot the next moving tile lands in
+  	  	  int write = lineStart;
+  	  	  //the last tile placed on this line, if it may still merge
+  	  	  TileNode last = null;
+  	  	  TileNode tnode = horizontal ? (forward ? this.rowHead[line] : this.rowTail[line])
+  	  	  	  	  	  	  	  	  	  	  	  	  	  	  	  	  : (forward ? this.colHead[line] : this.colTail[line]);
+  	  	  while(tnode!=null)
   	  	  {
-  	  	  	  //this deals with the first tile of a new row
-  	  	  	  //currentRow is updated
-  	  	  	  currentRow = tnode.getRow();
-  	  	  	  //the tile's value is stored for comparison
-  	  	  	  prevTile = tnode.getTile();
-  	  	  	  //the free column spot is reset
-  	  	  	  freeC = this.c-1;
-  	  	  	  
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getCol()<=freeC)&&(!(tnode.getTile() instanceof Brick)))
+  	  	  	  TileNode next = horizontal ? (forward ? tnode.right : tnode.left)
+  	  	  	  	  	  	  	  	  	  	  	  	  	  	  	  	  : (forward ? tnode.down : tnode.up);
+  	  	  	  int spot = horizontal ? tnode.getCol() : tnode.getRow();
+
+  	  	  	  //bricks stay put and nothing passes them
+  	  	  	  if(!tnode.getTile().isMovable())
   	  	  	  {
-  	  	  	  	  tnode.setCol(freeC);
-  	  	  	  	  freeC--;
+  	  	  	  	  write = spot+step;
+  	  	  	  	  last = null;
   	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeC = tnode.getCol()-1;
-  	  	  }
-  	  	  //if this isn't the first tile in the current row
-  	  	  else
-  	  	  {
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getCol()<=freeC)&&(!(tnode.getTile() instanceof Brick)))
+  	  	  	  //checks if the current and previous tile can merge
+  	  	  	  else if((last!=null)&&(last.getTile().mergesWith(tnode.getTile())))
   	  	  	  {
-  	  	  	  	  tnode.setCol(freeC);
-  	  	  	  	  freeC--;
+  	  	  	  	  Tile newTile = last.getTile().merge(tnode.getTile());
+  	  	  	  	  shiftScore += newTile.getScore();
+  	  	  	  	  this.hash ^= zobristKey(last) ^ zobristKey(tnode);
+  	  	  	  	  last.setTile(newTile);
+  	  	  	  	  this.hash ^= zobristKey(last);
+  	  	  	  	  rowChanged(last.getRow());
+  	  	  	  	  rowChanged(tnode.getRow());
+  	  	  	  	  if(horizontal)
+  	  	  	  	  	  unlinkFromRow(tnode);
+  	  	  	  	  else
+  	  	  	  	  	  unlinkFromCol(tnode);
+  	  	  	  	  this.bySpot.remove(spotOf(tnode));
+  	  	  	  	  this.freeIndex.markFree(tnode.getRow()*this.c+tnode.getCol());
+  	  	  	  	  this.free++;
+  	  	  	  	  this.shifted = true;
+  	  	  	  	  last = null;
+  	  	  	  	  tnode = next;
+  	  	  	  	  continue;
   	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeC = tnode.getCol()-1;
-  	  	  	  
-  	  	  	  //checks if the current and previous tile can merge
-  	  	  	  if(prevTile.mergesWith(tnode.getTile()))
+  	  	  	  else
   	  	  	  {
-  	  	  	  	  //this assumes that the two tiles can merge
-  	  	  	  	  //a new tile is created to store the merge
-  	  	  	  	  Tile newTile = new TwoNTile(0);
-  	  	  	  	  //the merge is attempted
-  	  	  	  	  try{
-  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  newTile = prevTile.merge(tnode.getTile());
+  	  	  	  	  //shifts the tile over if there's room
+  	  	  	  	  if(spot!=write)
+  	  	  	  	  {
+  	  	  	  	  	  this.bySpot.remove(spotOf(tnode));
+  	  	  	  	  	  this.freeIndex.markFree(tnode.getRow()*this.c+tnode.getCol());
+  	  	  	  	  	  this.hash ^= zobristKey(tnode);
+  	  	  	  	  	  rowChanged(tnode.getRow());
+  	  	  	  	  	  if(horizontal)
+  	  	  	  	  	  	  tnode.setCol(write);
+  	  	  	  	  	  else
+  	  	  	  	  	  	  tnode.setRow(write);
+  	  	  	  	  	  this.hash ^= zobristKey(tnode);
+  	  	  	  	  	  rowChanged(tnode.getRow());
+  	  	  	  	  	  this.bySpot.put(spotOf(tnode), tnode);
+  	  	  	  	  	  this.freeIndex.markFilled(tnode.getRow()*this.c+tnode.getCol());
+  	  	  	  	  	  this.shifted = true;
   	  	  	  	  }
-  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  
-  	  	  	  	  //collects the points earned
-  	  	  	  	  shiftScore += newTile.getScore();
-  	  	  	  	  
-  	  	  	  	  //the iterator is moved back to the previous node
-  	  	  	  	  TileNode mergeSpot = iter.next();
-  	  	  	  	  //the previous node's tile is updated
-  	  	  	  	  mergeSpot.setTile(newTile);
-  	  	  	  	  //moves the iterator to the current node
-  	  	  	  	  iter.previous();
-  	  	  	  	  //deletes the current node
-  	  	  	  	  iter.remove();
-  	  	  	  	  
-  	  	  	  	  //freeC is adjusted
-  	  	  	  	  freeC = mergeSpot.getCol()-1;
-  	  	  	  } 
+  	  	  	  	  last = tnode;
+  	  	  	  	  write += step;
+  	  	  	  }
+
+  	  	  	  //the node has its final spot, so it joins its crossing line
+  	  	  	  if(horizontal)
+  	  	  	  	  appendToCol(tnode);
+  	  	  	  else
+  	  	  	  	  appendToRow(tnode);
+  	  	  	  tnode = next;
   	  	  }
   	  }
-//-------------------------------------------------------------
-  	  //colMajor is updated to match the nodes of rowMajor
-  	  WLinkedList builder[] = new WLinkedList[this.c];
-  	  ListIterator<TileNode> iterate = rowMajor.listIterator();
-  	  while(iterate.hasNext())
-  	  {
-  	  	  TileNode currentNode = iterate.next();
-  	  	  builder[currentNode.getCol()].addLast(currentNode);
-  	  }
-  	  colMajor = WLinkedList.coalesce(builder);
-//------------------------------------------------------------
+  	  //every line has been relinked, so the pairs are counted afresh
+  	  if(this.shifted)
+  	  	  this.pairs = countPairs();
   	  return shiftScore;
   }
-//------------------------------------------------------------------------------
-//------------------------------------------------------------------------------
-  public int shiftUp()
-  {
-  	  this.shifted = false;
-  	  
-  	  //tracks points scored during shift
-  	  int shiftScore = 0;
-  	  //tracks the free row space and the current column
-  	  int freeR = 0;
-  	  int currentCol = -1;
 
-  	  
-	//creates the iterator through rowMajor
-  	  ListIterator<TileNode> iter = colMajor.listIterator();
-  	  Tile prevTile = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP LEFT and finishing at the BOTTOM RIGHT
-  	  while(iter.hasNext())					
-  	  {	  	  
-  	  	  TileNode tnode = iter.next();
-  	  	  
-  	  	  //if this is a new row
-  	  	  if(tnode.getRow()!=currentCol)
-  	  	  {
-  	  	  	  //this deals with the first tile of a new row
-  	  	  	  //currentRow is updated
-  	  	  	  currentCol = tnode.getCol();
-  	  	  	  //the tile's value is stored for comparison
-  	  	  	  prevTile = tnode.getTile();
-  	  	  	  //the free column spot is reset
-  	  	  	  freeR = 0;
-  	  	  	  
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getRow()>=freeR)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setRow(freeR);
-  	  	  	  	  freeR++;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeR = tnode.getRow()+1;
-  	  	  }
-  	  	  //if this isn't the first tile in the current row
-  	  	  else
+  //counts the side-by-side tiles which merge; neighbours on a list
+  //	are only side by side if their spots touch
+  private int countPairs()
+  {
+  	  int count = 0;
+  	  for(int row = 0; row<this.r; row++)
+  	  {
+  	  	  for(TileNode tnode = this.rowHead[row]; tnode!=null; tnode = tnode.right)
   	  	  {
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getRow()>=freeR)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setRow(freeR);
-  	  	  	  	  freeR++;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeR = tnode.getRow()+1;
-  	  	  	  
-  	  	  	  //checks if the current and previous tile can merge
-  	  	  	  if(prevTile.mergesWith(tnode.getTile()))
-  	  	  	  {
-  	  	  	  	  //this assumes that the two tiles can merge
-  	  	  	  	  //a new tile is created to store the merge
-  	  	  	  	  Tile newTile = new TwoNTile(0);
-  	  	  	  	  //the merge is attempted
-  	  	  	  	  try{
-  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  newTile = prevTile.merge(tnode.getTile());
-  	  	  	  	  }
-  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  
-  	  	  	  	  //collects the points earned
-  	  	  	  	  shiftScore += newTile.getScore();
-  	  	  	  	  
-  	  	  	  	  //the iterator is moved back to the previous node
-  	  	  	  	  TileNode mergeSpot = iter.previous();
-  	  	  	  	  //the previous node's tile is updated
-  	  	  	  	  mergeSpot.setTile(newTile);
-  	  	  	  	  //moves the iterator to the current node
-  	  	  	  	  iter.next();
-  	  	  	  	  //deletes the current node
-  	  	  	  	  iter.remove();
-  	  	  	  	  
-  	  	  	  	  //freeC is adjusted
-  	  	  	  	  freeR--;
-  	  	  	  } 
+  	  	  	  if(touches(tnode, tnode.right))
+  	  	  	  	  count++;
+  	  	  	  if(touches(tnode, tnode.down))
+  	  	  	  	  count++;
   	  	  }
   	  }
-//-------------------------------------------------------------
-  	  //rowMajor is updated to match the nodes of colMajor
-  	  WLinkedList builder[] = new WLinkedList[this.r];
-  	  ListIterator<TileNode> iterate = colMajor.listIterator();
-  	  while(iterate.hasNext())
-  	  {
-  	  	  TileNode currentNode = iterate.next();
-  	  	  builder[currentNode.getRow()].addLast(currentNode);
-  	  }
-  	  rowMajor = WLinkedList.coalesce(builder);
-//------------------------------------------------------------
-  	  return shiftScore;
+  	  return count;
   }
-//------------------------------------------------------------------------------
-//------------------------------------------------------------------------------
-  public int shiftDown()
+
+  //how many of a node's list neighbours touch it and merge with it
+  private int pairsAround(TileNode tnode)
   {
-  	  this.shifted = false;
-  	  
-  	  //tracks points scored during shift
-  	  int shiftScore = 0;
-  	  //tracks the free row space and the current column
-  	  int freeR = this.r-1;
-  	  int currentCol = -1;
+  	  int count = 0;
+  	  if(touches(tnode, tnode.left))
+  	  	  count++;
+  	  if(touches(tnode, tnode.right))
+  	  	  count++;
+  	  if(touches(tnode, tnode.up))
+  	  	  count++;
+  	  if(touches(tnode, tnode.down))
+  	  	  count++;
+  	  return count;
+  }
 
-  	  
-  	  //creates the iterator through rowMajor
-  	  ListIterator<TileNode> iter = colMajor.listIterator(colMajor.size()-1);
-  	  Tile prevTile = new TwoNTile(0);
-  	  
-  	  //move horizontally through the board starting from 
-  	  //	the TOP RIGHT and finishing at the BOTTOM LEFT
-  	  while(iter.hasPrevious())					
-  	  {	  	  
-  	  	  TileNode tnode = iter.previous();
-  	  	  
-  	  	  //if this is a new row
-  	  	  if(tnode.getCol()!=currentCol)
-  	  	  {
-  	  	  	  //this deals with the first tile of a new row
-  	  	  	  //currentRow is updated
-  	  	  	  currentCol = tnode.getCol();
-  	  	  	  //the tile's value is stored for comparison
-  	  	  	  prevTile = tnode.getTile();
-  	  	  	  //the free column spot is reset
-  	  	  	  freeR = this.r-1;
-  	  	  	  
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getRow()<=freeR)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setRow(freeR);
-  	  	  	  	  freeR--;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeR = tnode.getRow()-1;
-  	  	  }
-  	  	  //if this isn't the first tile in the current row
-  	  	  else
-  	  	  {
-  	  	  	  //shifts the tile over if there's room and the tile isn't a brick
-  	  	  	  if((tnode.getRow()<=freeR)&&(!(tnode.getTile() instanceof Brick)))
-  	  	  	  {
-  	  	  	  	  tnode.setRow(freeR);
-  	  	  	  	  freeR--;
-  	  	  	  }
-  	  	  	  //if the tile is a brick, the free column tracker is adjusted
-  	  	  	  if(tnode.getTile() instanceof Brick)
-  	  	  	  	  freeR = tnode.getRow()-1;
-  	  	  	  
-  	  	  	  //checks if the current and previous tile can merge
-  	  	  	  if(prevTile.mergesWith(tnode.getTile()))
-  	  	  	  {
-  	  	  	  	  //this assumes that the two tiles can merge
-  	  	  	  	  //a new tile is created to store the merge
-  	  	  	  	  Tile newTile = new TwoNTile(0);
-  	  	  	  	  //the merge is attempted
-  	  	  	  	  try{
-  	  	  	  	  	  //merges the tiles
-  	  	  	  	  	  newTile = prevTile.merge(tnode.getTile());
-  	  	  	  	  }
-  	  	  	  	  catch (RuntimeException e)
-  	  	  	  	  {System.out.println(e);}
-  	  	  	  	  
-  	  	  	  	  //collects the points earned
-  	  	  	  	  shiftScore += newTile.getScore();
-  	  	  	  	  
-  	  	  	  	  //the iterator is moved back to the previous node
-  	  	  	  	  TileNode mergeSpot = iter.next();
-  	  	  	  	  //the previous node's tile is updated
-  	  	  	  	  mergeSpot.setTile(newTile);
-  	  	  	  	  //moves the iterator to the current node
-  	  	  	  	  iter.previous();
-  	  	  	  	  //deletes the current node
-  	  	  	  	  iter.remove();
-  	  	  	  	  
-  	  	  	  	  //freeC is adjusted
-  	  	  	  	  freeR = mergeSpot.getRow()-1;
-  	  	  	  } 
-  	  	  }
+  //true if other is next to tnode and their tiles merge
+  private static boolean touches(TileNode tnode, TileNode other)
+  {
+  	  if(other==null)
+  	  	  return false;
+  	  int apart = Math.abs(tnode.getRow()-other.getRow())+Math.abs(tnode.getCol()-other.getCol());
+  	  return (apart==1)&&(tnode.getTile().mergesWith(other.getTile()));
+  }
+
+  //the key of a node's spot in bySpot
+  private long spotOf(TileNode tnode)
+  {
+  	  return (long)tnode.getRow()*this.c+tnode.getCol();
+  }
+
+  //the Zobrist key of a node's tile at its spot
+  private long zobristKey(TileNode tnode)
+  {
+  	  return Zobrist.key(spotOf(tnode), tnode.getTile());
+  }
+
+  //links a node in after the last node of its row
+  private void appendToRow(TileNode tnode)
+  {
+  	  int row = tnode.getRow();
+  	  tnode.left = this.rowTail[row];
+  	  tnode.right = null;
+  	  if(this.rowTail[row]==null)
+  	  	  this.rowHead[row] = tnode;
+  	  else
+  	  	  this.rowTail[row].right = tnode;
+  	  this.rowTail[row] = tnode;
+  }
+
+  //links a node in after the last node of its column
+  private void appendToCol(TileNode tnode)
+  {
+  	  int col = tnode.getCol();
+  	  tnode.up = this.colTail[col];
+  	  tnode.down = null;
+  	  if(this.colTail[col]==null)
+  	  	  this.colHead[col] = tnode;
+  	  else
+  	  	  this.colTail[col].down = tnode;
+  	  this.colTail[col] = tnode;
+  }
+
+  //links a node into its row in front of the first node to its right
+  private void insertIntoRow(TileNode tnode)
+  {
+  	  int row = tnode.getRow();
+  	  TileNode after = this.rowHead[row];
+  	  while((after!=null)&&(after.getCol()<tnode.getCol()))
+  	  	  after = after.right;
+  	  if(after==null)
+  	  {
+  	  	  appendToRow(tnode);
+  	  	  return;
   	  }
-//-------------------------------------------------------------
-  	  //rowMajor is updated to match the nodes of colMajor
-  	  WLinkedList builder[] = new WLinkedList[this.r];
-  	  ListIterator<TileNode> iterate = colMajor.listIterator();
-  	  while(iterate.hasNext())
+  	  tnode.right = after;
+  	  tnode.left = after.left;
+  	  if(after.left==null)
+  	  	  this.rowHead[row] = tnode;
+  	  else
+  	  	  after.left.right = tnode;
+  	  after.left = tnode;
+  }
+
+  //links a node into its column in front of the first node below it
+  private void insertIntoCol(TileNode tnode)
+  {
+  	  int col = tnode.getCol();
+  	  TileNode below = this.colHead[col];
+  	  while((below!=null)&&(below.getRow()<tnode.getRow()))
+  	  	  below = below.down;
+  	  if(below==null)
   	  {
-  	  	  TileNode currentNode = iterate.next();
-  	  	  builder[currentNode.getRow()].addLast(currentNode);
+  	  	  appendToCol(tnode);
+  	  	  return;
   	  }
-  	  rowMajor = WLinkedList.coalesce(builder);
-//------------------------------------------------------------
-  	  return shiftScore;
+  	  tnode.down = below;
+  	  tnode.up = below.up;
+  	  if(below.up==null)
+  	  	  this.colHead[col] = tnode;
+  	  else
+  	  	  below.up.down = tnode;
+  	  below.up = tnode;
+  }
+
+  //takes a node out of its row
+  private void unlinkFromRow(TileNode tnode)
+  {
+  	  int row = tnode.getRow();
+  	  if(tnode.left==null)
+  	  	  this.rowHead[row] = tnode.right;
+  	  else
+  	  	  tnode.left.right = tnode.right;
+  	  if(tnode.right==null)
+  	  	  this.rowTail[row] = tnode.left;
+  	  else
+  	  	  tnode.right.left = tnode.left;
+  }
+
+  //takes a node out of its column
+  private void unlinkFromCol(TileNode tnode)
+  {
+  	  int col = tnode.getCol();
+  	  if(tnode.up==null)
+  	  	  this.colHead[col] = tnode.down;
+  	  else
+  	  	  tnode.up.down = tnode.down;
+  	  if(tnode.down==null)
+  	  	  this.colTail[col] = tnode.up;
+  	  else
+  	  	  tnode.down.up = tnode.up;
   }
 
 }
@@ -0,0 +1,106 @@
+import java.util.Random;
+
+// A way of choosing moves for a game without a human at the keyboard.
+// Strategies only return directions which move some tile and return
+// null when no direction does.
+public interface Strategy {
+
+  // Return the direction to shift the game in next, or null if no
+  // shift would move any tile
+  Direction chooseMove(Game2048 game);
+
+  // Build a strategy by name: "random", "corner", "greedy" or "ai".
+  // The seed drives any randomness of the strategy so a game's moves
+  // depend only on its seed; aiDepth is the search depth for "ai".
+  static Strategy forName(String name, long seed, int aiDepth){
+    if(name.equals("random")){ return new RandomStrategy(seed); }
+    if(name.equals("corner")){ return new CornerStrategy(); }
+    if(name.equals("greedy")){ return new GreedyStrategy(); }
+    if(name.equals("ai")){ return new AIStrategy(aiDepth); }
+    throw new RuntimeException(String.format("Unknown strategy '%s'",name));
+  }
+
+  // Score of shifting the game's board in each direction, or -1 for
+  // directions which move nothing. Indexed by ordinal().
+  static int[] shiftScores(Game2048 game){
+    MovePreview preview = game.previewMoves();
+    int[] scores = new int[4];
+    for(Direction d : Direction.values()){
+      scores[d.ordinal()] = preview.moves(d) ? preview.score(d) : -1;
+    }
+    return scores;
+  }
+
+  // Uniformly random choice among the directions that move
+  class RandomStrategy implements Strategy {
+    private final Random random;
+
+    public RandomStrategy(long seed){
+      this.random = new Random(seed);
+    }
+
+    public Direction chooseMove(Game2048 game){
+      int[] scores = shiftScores(game);
+      int legal = 0;
+      for(int score : scores){
+        if(score >= 0){ legal++; }
+      }
+      if(legal == 0){
+        return null;
+      }
+      int pick = this.random.nextInt(legal);
+      for(Direction d : Direction.values()){
+        if(scores[d.ordinal()] >= 0 && pick-- == 0){
+          return d;
+        }
+      }
+      return null;
+    }
+  }
+
+  // Keep tiles packed into the bottom-left corner: the first of down,
+  // left, right, up that moves
+  class CornerStrategy implements Strategy {
+    private static final Direction[] ORDER =
+      {Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP};
+
+    public Direction chooseMove(Game2048 game){
+      int[] scores = shiftScores(game);
+      for(Direction d : ORDER){
+        if(scores[d.ordinal()] >= 0){
+          return d;
+        }
+      }
+      return null;
+    }
+  }
+
+  // The direction scoring the most right now; ties go to the first in
+  // Direction order
+  class GreedyStrategy implements Strategy {
+    public Direction chooseMove(Game2048 game){
+      int[] scores = shiftScores(game);
+      Direction best = null;
+      for(Direction d : Direction.values()){
+        if(scores[d.ordinal()] >= 0 && (best == null || scores[d.ordinal()] > scores[best.ordinal()])){
+          best = d;
+        }
+      }
+      return best;
+    }
+  }
+
+  // Expectimax search to a fixed depth
+  class AIStrategy implements Strategy {
+    private final ExpectimaxPlayer player;
+
+    public AIStrategy(int depth){
+      this.player = new ExpectimaxPlayer(depth);
+    }
+
+    public Direction chooseMove(Game2048 game){
+      return this.player.bestMove(game);
+    }
+  }
+
+}
@@ -3,16 +3,33 @@ import java.util.Scanner;
 // Concrete implementation of a Tile. TwoNTiles merge with each other
 // but only if they have the same value.
 public class TwoNTile extends Tile {
-  private int value;
+  private final int value;
+
+  // One shared tile for each power of two, indexed by exponent. Tiles
+  // are immutable so boards can all point at the same instance.
+  private static final TwoNTile[] CANONICAL = new TwoNTile[31];
+  static {
+    for(int k=1; k<CANONICAL.length; k++){
+      CANONICAL[k] = new TwoNTile(1 << k);
+    }
+  }
 
   // Create a tile with the given value of n; should be a power of 2
   // though no error checking is done
   public TwoNTile(int n){
-  	if(n<2)
-  		System.out.println("making tile of val 0");
     this.value = n;
   }
 
+  // The shared tile with value n when n is a power of two from 2 up,
+  // otherwise a new tile as the constructor would make. Merges and
+  // spawns use this so play allocates no tiles.
+  public static TwoNTile valueOf(int n){
+    if(n >= 2 && (n & (n-1)) == 0){
+      return CANONICAL[Integer.numberOfTrailingZeros(n)];
+    }
+    return new TwoNTile(n);
+  }
+
   // Returns true if this tile merges with the given tile. "this"
   // (calling tile) is assumed to be the stationary tile while moving
   // is presumed to be the moving tile. TwoNTiles only merge with
@@ -38,8 +55,7 @@ public class TwoNTile extends Tile {
       throw new RuntimeException(msg);
     }
     TwoNTile tile = (TwoNTile) moving;
-    TwoNTile merged = new TwoNTile(this.value + tile.value);
-    return merged;
+    return valueOf(this.value + tile.value);
   }
 
   // Get the score for this tile. The score for TwoNTiles are its face
@@ -64,4 +80,9 @@ public class TwoNTile extends Tile {
     return this.value == tile.value;
   }
 
+  // Equal tiles have equal values, so the value is the hash
+  public int hashCode(){
+    return this.value;
+  }
+
 }
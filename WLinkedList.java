@@ -315,56 +315,56 @@ public class WLinkedList<T> implements Iterable<T>{
   // REQUIRED: Transfer all contents of other to the end of this
   // list. Completely empties list other of all elements.
   // 
+  // The chain of other's nodes is spliced in between this list's last
+  // node and its end marker, so no node is copied or allocated.
+  // 
   // TARGET COMPLEXITY: O(1)
   public void transferFrom(WLinkedList<T> other)
   {
-  	  //creates a iterator to traverse through other
-  	  Iterator<T> otherIterator = other.iterator();
-  	  
-  	  //while there are nodes to traverse through
-  	  while(otherIterator.hasNext())
-  	  {
-  	  	  //grabs the item stored in the 'other' node-
-  	  	  T item = otherIterator.next();
-  	  	  //-and adds it to the end of this list
-  	  	  addLast(item);
-  	  }
-  	  //clears out other
-  	  other.clear();
+  	  //nothing to move, and a list can't be moved onto itself
+  	  if((other==this)||(other.isEmpty()))
+  	  	  return;
+
+  	  //the ends of the chain being moved
+  	  Node<T> first = other.beginMarker.next;
+  	  Node<T> last = other.endMarker.prev;
+
+  	  //hooks the chain on after this list's last node
+  	  first.prev = this.endMarker.prev;
+  	  this.endMarker.prev.next = first;
+  	  last.next = this.endMarker;
+  	  this.endMarker.prev = last;
+  	  this.theSize += other.theSize;
+  	  this.modCount++;
+
+  	  //other's markers are joined back up, leaving it empty
+  	  other.beginMarker.next = other.endMarker;
+  	  other.endMarker.prev = other.beginMarker;
+  	  other.theSize = 0;
+  	  other.modCount++;
   }
 
   // REQUIRED: Produce a new list which combines all elements from the
   // lists in the parameter array.  All lists in the parameter array
-  // lists[] are completely emptied.
+  // lists[] are completely emptied. Null entries are skipped.
   // 
   // TARGET COMPLEXITY: O(N)
   // N: the size of the parameter array lists[]
   public static <T> WLinkedList<T> coalesce(WLinkedList<T> lists[])
   {
-  	  //creates a iterator to traverse through lists
-  	  WLinkedList<T> unitedList = new WLinkedList();
-  	  
-  	  //the for loop moves through lists
-  	  for(int i=0; i<lists.length-1;i++)
+  	  WLinkedList<T> unitedList = new WLinkedList<T>();
+
+  	  //each list's chain is spliced onto the end in turn
+  	  for(int i=0; i<lists.length; i++)
   	  {
-  	  	  //grabs the list stored in the 'lists' node-
-  	  	  WLinkedList<T> subList = lists[i];
-  	  	  //-and begins traversing through it
-  	  	  Iterator<T> subIterator = subList.iterator();
-  	  	  while(subIterator.hasNext())
-  	  	  {
-  	  	  	  //the sublist's contents are added to the united list
-  	  	  	  T item = subIterator.next();
-  	  	  	  unitedList.addLast(item);
-  	  	  }
-  	  	  //finally, the sub list is emptied
-  	  	  subList.clear();
+  	  	  if(lists[i]!=null)
+  	  	  	  unitedList.transferFrom(lists[i]);
   	  }
 
-  	//a single, compiled list is returned
-    return unitedList;
+  	  //a single, compiled list is returned
+  	  return unitedList;
   }
-    
+
 
   ////////////////////////////////////////////////////////////////////////////////
   // Iteration Methods
@@ -446,9 +446,9 @@ public class WLinkedList<T> implements Iterable<T>{
     // TARGET COMPLEXITY: O(1)
     public boolean hasPrevious( )
     {
-    	if( expectedModCount != modCount ) //?
+    	if( expectedModCount != modCount )
     		throw new ConcurrentModificationException( );
-    	return current != beginMarker;
+    	return current != beginMarker.next;
     }
       
     // REQUIRED: Move the iterator backward and return the passed-over
@@ -460,39 +460,37 @@ public class WLinkedList<T> implements Iterable<T>{
     	if( !hasPrevious( ) )
         throw new NoSuchElementException( ); 
                 
+     	 current = current.prev;
      	 T previousItem = current.data;
      	 lastVisited = current;
-     	 current = current.prev;
      	 lastMoveWasPrev = true;
      	 return previousItem;
     }         
 
     // REQUIRED: Add the specified data to the list before the element
     // that would be returned by a call to next()
-    // (a.k.a. after current)
     // TARGET COMPLEXITY: O(1)
     public void add(T x)
     {
-    	//if current isn't the last node...
-    	if(hasNext())
-    	{
-    		//set up the order as current->newNode->current.next
-    		Node<T> newNode = new Node(x, current, current.next);
-    		current.next = newNode;
-    	}
-    	//if current was the last node, set the new node's next to null
-    	else
-    	{
-    		Node<T> newNode = new Node(x, current, null);
-    		current.next = newNode;
-    	}
+    	if( expectedModCount != modCount )
+    		throw new ConcurrentModificationException( );
+    	//set up the order as current.prev->newNode->current
+    	Node<T> newNode = new Node<T>(x, current.prev, current);
+    	current.prev.next = newNode;
+    	current.prev = newNode;
+    	theSize++;
+    	modCount++;
+    	expectedModCount++;
+    	lastVisited = null;
     }        
 
     // OPTIONAL: Set the data associated with the last next() or
     // previous() call to the specified data
     public void set(T x)
     {
-    	current.prev.data = x;
+    	if( lastVisited == null )
+    		throw new IllegalStateException( );
+    	lastVisited.data = x;
     }
     // OPTIONAL: Return the integer index associated with the element
     // that would be returned by next()
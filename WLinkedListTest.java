@@ -0,0 +1,189 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+// Checks of WLinkedList's splicing transferFrom() and coalesce(). Each
+// result is walked forward and backward so a bad prev or next link in
+// a splice shows up, not just a wrong size. Run with
+//
+//   java WLinkedListTest
+//
+// which prints "ok" or throws on the first failure.
+public class WLinkedListTest {
+
+  public static void main(String args[]){
+    transferOntoEmpty();
+    transferFromEmpty();
+    transferAppends();
+    transferOntoItself();
+    transferInvalidatesIterators();
+    iterateAfterTransfer();
+    iterateEmptiedSource();
+    coalesceTakesEveryList();
+    coalesceOnlyLast();
+    coalesceSkipsNullsAndEmpties();
+    coalesceNothing();
+    coalesceSameListTwice();
+    System.out.println("ok");
+  }
+
+  static void transferOntoEmpty(){
+    WLinkedList<Integer> to = listOf();
+    WLinkedList<Integer> from = listOf(1, 2, 3);
+    to.transferFrom(from);
+    expect(to, 1, 2, 3);
+    expect(from);
+  }
+
+  static void transferFromEmpty(){
+    WLinkedList<Integer> to = listOf(1, 2);
+    WLinkedList<Integer> from = listOf();
+    to.transferFrom(from);
+    expect(to, 1, 2);
+    expect(from);
+  }
+
+  static void transferAppends(){
+    WLinkedList<Integer> to = listOf(1, 2);
+    WLinkedList<Integer> from = listOf(3, 4, 5);
+    to.transferFrom(from);
+    expect(to, 1, 2, 3, 4, 5);
+    expect(from);
+    // both lists still take adds at either end after the splice
+    to.addLast(6);
+    to.addFirst(0);
+    expect(to, 0, 1, 2, 3, 4, 5, 6);
+    from.addLast(7);
+    from.addFirst(8);
+    expect(from, 8, 7);
+  }
+
+  static void transferOntoItself(){
+    WLinkedList<Integer> list = listOf(1, 2, 3);
+    list.transferFrom(list);
+    expect(list, 1, 2, 3);
+  }
+
+  static void transferInvalidatesIterators(){
+    WLinkedList<Integer> to = listOf(1);
+    WLinkedList<Integer> from = listOf(2);
+    Iterator<Integer> toIt = to.iterator();
+    Iterator<Integer> fromIt = from.iterator();
+    to.transferFrom(from);
+    check(throwsConcurrentModification(toIt), "iterator over the receiving list still valid");
+    check(throwsConcurrentModification(fromIt), "iterator over the emptied list still valid");
+  }
+
+  // An iterator made after the splice walks, removes and adds across
+  // the join between the two chains
+  static void iterateAfterTransfer(){
+    WLinkedList<Integer> to = listOf(1, 2);
+    WLinkedList<Integer> from = listOf(3, 4);
+    to.transferFrom(from);
+    ListIterator<Integer> it = to.listIterator();
+    it.next();
+    check(it.next() == 2, "walk before the join");
+    it.remove();
+    check(it.next() == 3, "walk over the join");
+    it.remove();
+    it.add(9);
+    expect(to, 1, 9, 4);
+    check(it.previous() == 9 && it.previous() == 1, "walk back over the join");
+    it.set(0);
+    expect(to, 0, 9, 4);
+  }
+
+  static void iterateEmptiedSource(){
+    WLinkedList<Integer> to = listOf(1);
+    WLinkedList<Integer> from = listOf(2, 3);
+    to.transferFrom(from);
+    ListIterator<Integer> it = from.listIterator();
+    check(!it.hasNext() && !it.hasPrevious(), "emptied list still has items to walk");
+    it.add(4);
+    expect(from, 4);
+    expect(to, 1, 2, 3);
+  }
+
+  static void coalesceTakesEveryList(){
+    WLinkedList<Integer> a = listOf(1, 2);
+    WLinkedList<Integer> b = listOf(3);
+    WLinkedList<Integer> c = listOf(4, 5);
+    expect(WLinkedList.coalesce(arrayOf(a, b, c)), 1, 2, 3, 4, 5);
+    expect(a);
+    expect(b);
+    expect(c);
+  }
+
+  // The last list used to be left out
+  static void coalesceOnlyLast(){
+    WLinkedList<Integer> last = listOf(7, 8);
+    expect(WLinkedList.coalesce(arrayOf(listOf(), listOf(), last)), 7, 8);
+    expect(last);
+  }
+
+  static void coalesceSkipsNullsAndEmpties(){
+    expect(WLinkedList.coalesce(arrayOf(null, listOf(1), listOf(), null, listOf(2, 3), null)), 1, 2, 3);
+  }
+
+  static void coalesceNothing(){
+    expect(WLinkedList.coalesce(arrayOf()));
+  }
+
+  // The second mention finds the list already emptied by the first
+  static void coalesceSameListTwice(){
+    WLinkedList<Integer> a = listOf(1, 2);
+    expect(WLinkedList.coalesce(arrayOf(a, a)), 1, 2);
+    expect(a);
+  }
+
+  static WLinkedList<Integer> listOf(Integer... items){
+    WLinkedList<Integer> list = new WLinkedList<Integer>();
+    for(Integer item : items){
+      list.addLast(item);
+    }
+    return list;
+  }
+
+  // An array of lists for coalesce()
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  static WLinkedList<Integer>[] arrayOf(WLinkedList<Integer>... lists){
+    return lists;
+  }
+
+  // Check list holds exactly items, walking it both ways
+  static void expect(WLinkedList<Integer> list, Integer... items){
+    check(list.size() == items.length, "size " + list.size() + " of " + list + ", expected " + items.length);
+    check(list.isEmpty() == (items.length == 0), "isEmpty() wrong for " + list);
+    int k = 0;
+    for(Integer item : list){
+      check(k < items.length && item.equals(items[k]), "forward walk of " + list + " wrong at " + k);
+      k++;
+    }
+    check(k == items.length, "forward walk of " + list + " ended at " + k);
+    ListIterator<Integer> back = list.listIterator(list.size());
+    k = items.length;
+    while(back.hasPrevious()){
+      k--;
+      check(k >= 0 && back.previous().equals(items[k]), "backward walk of " + list + " wrong at " + k);
+    }
+    check(k == 0, "backward walk of " + list + " ended at " + k);
+  }
+
+  static boolean throwsConcurrentModification(Iterator<Integer> it){
+    try{
+      it.hasNext();
+      return false;
+    }
+    catch(ConcurrentModificationException e){
+      return true;
+    }
+  }
+
+  static void check(boolean ok, String message){
+    if(!ok){
+      throw new RuntimeException(message);
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+// Zobrist hashing of board positions. Every (cell, tile) pair has a
+// fixed 64-bit key and a board's hash is the XOR of the keys of the
+// tiles it holds, empty cells adding nothing. A board keeps its hash
+// up to date by XORing out the key of whatever a cell held and XORing
+// in the key of what it holds now, so a write costs one key either way
+// and no lookup ever rescans the board.
+//
+// Keys depend only on the cell's row-major index and the tile, never
+// on the board style, so equal positions hash the same on every kind
+// of board. They are computed by mixing rather than drawn from a
+// table, so boards of any size need no setup.
+public class Zobrist {
+
+  // Stands in for a tile's value when the tile is a Brick
+  public static final int BRICK = -1;
+
+  // Key of the given cell holding a tile of the given value, or BRICK
+  public static long key(long cell, int value){
+    return mix((cell << 32) ^ (value & 0xFFFFFFFFL));
+  }
+
+  // Key of the given cell holding t; 0 when t is null
+  public static long key(long cell, Tile t){
+    if(t == null){
+      return 0;
+    }
+    return key(cell, t.isMovable() ? t.getScore() : BRICK);
+  }
+
+  // Hash of the board from scratch, one row at a time
+  public static long hashOf(Board board){
+    int cols = board.getCols();
+    Tile[] row = new Tile[cols];
+    long hash = 0;
+    for(int i=0; i<board.getRows(); i++){
+      board.readRow(i, row);
+      for(int j=0; j<cols; j++){
+        hash ^= key((long) i*cols + j, row[j]);
+      }
+    }
+    return hash;
+  }
+
+  // The SplitMix64 finalizer after a golden-ratio offset: a one-to-one
+  // scramble of 64 bits, so distinct (cell, value) pairs never share a
+  // key
+  static long mix(long z){
+    z += 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+// ByteBoard's row kernel on the jdk.incubator.vector API. Kept out of
+// the main sources since it only compiles and runs with
+//
+//   --add-modules jdk.incubator.vector
+//
+// and ByteBoard loads it by name when -Dgame2048.vectorShift=true.
+//
+// A row is shifted toward its first cell one brick-free segment at a
+// time, in two passes over lanes of eight codes:
+//
+//   1. Compact: the non-empty lanes of each vector are packed to its
+//      front with a shuffle looked up by the vector's non-empty mask,
+//      and stored after the tiles packed so far.
+//   2. Merge: where a vector of packed tiles has no two equal side by
+//      side, and its first doesn't equal the tile placed before it,
+//      nothing in it merges and it is stored as it is. Anywhere else
+//      tiles go one at a time, merging as ByteBoard.shiftLine() does.
+//
+// The rest of the segment is then cleared and the brick ending it kept.
+// JDK 17's vector API has no compress operation, hence the table of
+// 256 shuffles; without one the merge pass could not skip ahead either,
+// since which equal neighbours pair up depends on all before them.
+// Rows shifted toward their last cell are reversed in and out.
+public class ByteRowVectors implements ByteBoard.RowKernel {
+
+  private static final VectorSpecies<Byte> LANES = ByteVector.SPECIES_64;
+  private static final int N = 8;
+
+  // SHUFFLES[m] moves the lanes set in mask m, in order, to the front
+  private static final VectorShuffle<Byte>[] SHUFFLES = packShuffles();
+  private static final VectorShuffle<Byte> REVERSE = VectorShuffle.fromOp(LANES, i -> N-1-i);
+
+  private byte[] line = new byte[0];      // the row running toward its start
+  private byte[] packed = new byte[0];    // its tiles without the gaps
+  private byte[] shifted = new byte[0];   // the row after the shift
+
+  public int shiftRow(byte[] cells, int from, int len, boolean reverse, byte[] row){
+    if(this.line.length < len + N){
+      this.line = new byte[len + N];
+      this.packed = new byte[len + N];
+      this.shifted = new byte[len + N];
+    }
+    byte[] in = this.line;
+    byte[] out = reverse ? this.shifted : row;
+    if(reverse){
+      reverse(cells, from, len, in);
+    }
+    else{
+      System.arraycopy(cells, from, in, 0, len);
+    }
+    int score = 0;
+    int start = 0;
+    while(start < len){
+      int end = nextBrick(in, start, len);
+      score += shiftSegment(in, start, end, out);
+      if(end < len){
+        out[end] = ByteBoard.BRICK;
+      }
+      start = end + 1;
+    }
+    if(reverse){
+      reverse(out, 0, len, row);
+    }
+    return score;
+  }
+
+  // Shift in[start..end), which holds no brick, into out[start..end)
+  private int shiftSegment(byte[] in, int start, int end, byte[] out){
+    byte[] packed = this.packed;
+    int n = 0;
+    int k = start;
+    for(; k + N <= end; k += N){
+      ByteVector v = ByteVector.fromArray(LANES, in, k);
+      int tiles = (int) v.compare(VectorOperators.NE, (byte) 0).toLong();
+      if(tiles == 0){
+        continue;
+      }
+      (tiles == 0xFF ? v : v.rearrange(SHUFFLES[tiles])).intoArray(packed, n);
+      n += Integer.bitCount(tiles);
+    }
+    for(; k < end; k++){
+      if(in[k] != ByteBoard.EMPTY){
+        packed[n++] = in[k];
+      }
+    }
+
+    int score = 0;
+    int write = start;
+    int last = -1;              // last tile placed, if it may still merge
+    int t = 0;
+    while(t < n){
+      if(t + N <= n && (last < 0 || out[last] != packed[t])){
+        ByteVector v = ByteVector.fromArray(LANES, packed, t);
+        ByteVector next = ByteVector.fromArray(LANES, packed, t+1);
+        // lane 7 compares with whatever follows the tiles; it doesn't count
+        if((v.compare(VectorOperators.EQ, next).toLong() & 0x7F) == 0){
+          v.intoArray(out, write);
+          write += N;
+          last = write - 1;
+          t += N;
+          continue;
+        }
+      }
+      byte code = packed[t++];
+      if(last >= 0 && out[last] == code && code < ByteBoard.MAX_EXPONENT){
+        out[last] = (byte) (code + 1);
+        score += 1 << (code + 1);
+        last = -1;
+      }
+      else{
+        out[write] = code;
+        last = write++;
+      }
+    }
+    Arrays.fill(out, write, end, ByteBoard.EMPTY);
+    return score;
+  }
+
+  // The first brick in in[start..len), or len if there is none
+  private static int nextBrick(byte[] in, int start, int len){
+    int k = start;
+    for(; k + N <= len; k += N){
+      VectorMask<Byte> bricks = ByteVector.fromArray(LANES, in, k).compare(VectorOperators.EQ, ByteBoard.BRICK);
+      if(bricks.anyTrue()){
+        return k + bricks.firstTrue();
+      }
+    }
+    for(; k < len; k++){
+      if(in[k] == ByteBoard.BRICK){
+        return k;
+      }
+    }
+    return len;
+  }
+
+  // Copy src[from..from+len) into dst[0..len) back to front
+  private static void reverse(byte[] src, int from, int len, byte[] dst){
+    int k = 0;
+    for(; k + N <= len; k += N){
+      ByteVector.fromArray(LANES, src, from + len - N - k).rearrange(REVERSE).intoArray(dst, k);
+    }
+    for(; k < len; k++){
+      dst[k] = src[from + len - 1 - k];
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static VectorShuffle<Byte>[] packShuffles(){
+    VectorShuffle<Byte>[] shuffles = new VectorShuffle[1 << N];
+    int[] order = new int[N];
+    for(int mask=0; mask<shuffles.length; mask++){
+      int n = 0;
+      for(int lane=0; lane<N; lane++){
+        if((mask & (1 << lane)) != 0){
+          order[n++] = lane;
+        }
+      }
+      Arrays.fill(order, n, N, 0);
+      shuffles[mask] = VectorShuffle.fromArray(LANES, order, 0);
+    }
+    return shuffles;
+  }
+
+}